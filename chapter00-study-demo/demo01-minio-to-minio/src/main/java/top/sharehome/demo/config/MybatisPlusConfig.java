@@ -0,0 +1,26 @@
+package top.sharehome.demo.config;
+
+import com.baomidou.mybatisplus.autoconfigure.DdlApplicationRunner;
+import com.baomidou.mybatisplus.extension.ddl.IDdl;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+
+/**
+ * MyBatis-Plus配置
+ * MyBatis-Plus 3.5.3.1在没有IDdl时把ddlApplicationRunner注册为null，Spring Boot 3.1按Runner类型取出所有Runner时会启动失败，
+ * 这里自己注册一个（自动配置带有@ConditionalOnMissingBean），没有IDdl时什么也不做
+ *
+ * @author AntonyCheng
+ */
+@Configuration
+public class MybatisPlusConfig {
+
+    @Bean
+    public DdlApplicationRunner ddlApplicationRunner(@Autowired(required = false) List<IDdl> ddlList) {
+        return new DdlApplicationRunner(ddlList);
+    }
+
+}
@@ -0,0 +1,721 @@
+package top.sharehome.demo.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import top.sharehome.demo.sync.CopyMode;
+import top.sharehome.demo.sync.DigestAlgorithm;
+import top.sharehome.demo.sync.ExecutionMode;
+import top.sharehome.demo.sync.ServerSideCopy;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 文件同步配置属性
+ * 对应application.yaml中的sync前缀配置
+ *
+ * @author AntonyCheng
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "sync")
+public class SyncProperties {
+
+    /**
+     * 启动时是否执行同步（SyncFiles），基准测试等只需要同步组件的场景关闭
+     */
+    private boolean runOnStartup = true;
+
+    /**
+     * 同步并行度，即同时进行中的对象数上限和"sync"线程池的线程数，HTTP连接池和调度器上限都会与之对齐
+     */
+    private int parallelism = 36;
+
+    /**
+     * 在途字节上限，即所有传输占用的缓冲区总和，与并行度分开限制
+     */
+    private DataSize maxInFlightBytes = DataSize.ofMegabytes(512);
+
+    /**
+     * 待同步文件的路径前缀
+     */
+    private String pathPrefix = "/xgadmin/";
+
+    /**
+     * 分页拉取待同步文件时每页的行数
+     */
+    private int pageSize = 1000;
+
+    /**
+     * 源文件MinIO
+     */
+    private Endpoint source = new Endpoint();
+
+    /**
+     * 目标文件MinIO
+     */
+    private Endpoint destination = new Endpoint();
+
+    /**
+     * 副本目标端（例如灾备站点、分析数据湖），配置后每个源对象只读取一次，同时上传到destination和所有副本
+     */
+    private List<Endpoint> replicas = new ArrayList<>();
+
+    /**
+     * 多目标端扇出复制配置
+     */
+    private FanOut fanOut = new FanOut();
+
+    /**
+     * MinIO客户端HTTP连接池配置
+     */
+    private Pool pool = new Pool();
+
+    /**
+     * 对象复制配置
+     */
+    private Copy copy = new Copy();
+
+    /**
+     * 增量同步检查点配置
+     */
+    private Checkpoint checkpoint = new Checkpoint();
+
+    /**
+     * 自适应并发配置
+     */
+    private Adaptive adaptive = new Adaptive();
+
+    /**
+     * 大小分通道配置
+     */
+    private Lanes lanes = new Lanes();
+
+    /**
+     * 同步指标和进度配置
+     */
+    private Metrics metrics = new Metrics();
+
+    /**
+     * 失败重试配置
+     */
+    private Retry retry = new Retry();
+
+    /**
+     * 端点熔断配置
+     */
+    private CircuitBreaker circuitBreaker = new CircuitBreaker();
+
+    /**
+     * 死信文件配置
+     */
+    private DeadLetter deadLetter = new DeadLetter();
+
+    /**
+     * 非法路径报告配置
+     */
+    private InvalidPath invalidPath = new InvalidPath();
+
+    /**
+     * 带宽限速配置
+     */
+    private Throttle throttle = new Throttle();
+
+    /**
+     * 复制校验配置
+     */
+    private Verify verify = new Verify();
+
+    /**
+     * 同步计划（试运行）配置
+     */
+    private Plan plan = new Plan();
+
+    /**
+     * 镜像删除配置
+     */
+    private Mirror mirror = new Mirror();
+
+    /**
+     * 持续同步配置
+     */
+    private Continuous continuous = new Continuous();
+
+    /**
+     * 执行方式配置
+     */
+    private Execution execution = new Execution();
+
+    /**
+     * 同时进行中的对象数的硬上限，开启自适应并发时为自适应上限和并行度中的较大者，线程池和HTTP调度器按此值配置
+     */
+    public int maxConcurrency() {
+        return adaptive.isEnabled() ? Math.max(parallelism, adaptive.getMaxLimit()) : parallelism;
+    }
+
+    /**
+     * 所有目标端，第一个为destination，其后为副本
+     */
+    public List<Endpoint> destinations() {
+        List<Endpoint> destinations = new ArrayList<>(replicas.size() + 1);
+        destinations.add(destination);
+        destinations.addAll(replicas);
+        return destinations;
+    }
+
+    /**
+     * MinIO端点配置
+     */
+    @Data
+    public static class Endpoint {
+
+        /**
+         * 名称，用于日志和区分副本，不配置时使用地址
+         */
+        private String name;
+
+        /**
+         * MinIO地址
+         */
+        private String endpoint = "http://xxx.xxx.xxx.xxx:9000";
+
+        /**
+         * MinIO AccessKey
+         */
+        private String accessKey = "minio";
+
+        /**
+         * MinIO SecretKey
+         */
+        private String secretKey = "minio123";
+
+        /**
+         * 目标端标识
+         */
+        public String id() {
+            return name != null ? name : endpoint;
+        }
+
+    }
+
+    /**
+     * 多目标端扇出复制配置
+     */
+    @Data
+    public static class FanOut {
+
+        /**
+         * 源对象按块读取后发给各目标端，块大小
+         */
+        private DataSize chunkSize = DataSize.ofMegabytes(1);
+
+        /**
+         * 已读取但还没有被最慢的目标端取走的块数上限，超过后暂停读取源对象，
+         * 单个对象的缓冲上限约为 块大小 *（该值 + 目标端数 * 2）+ 目标端数 * min(对象大小, 分片大小)，
+         * 后一项是每个目标端putObject攒分片的缓冲区
+         */
+        private int bufferChunks = 8;
+
+    }
+
+    /**
+     * HTTP连接池配置，未配置的上限默认按照并发上限（maxConcurrency）推算
+     */
+    @Data
+    public static class Pool {
+
+        /**
+         * 连接池最大空闲连接数，默认为并发上限的2倍（源端和目标端各一份）
+         */
+        private Integer maxIdleConnections;
+
+        /**
+         * 空闲连接保活时间
+         */
+        private Duration keepAlive = Duration.ofMinutes(5);
+
+        /**
+         * 调度器最大并发请求数，默认为并发上限的2倍
+         */
+        private Integer maxRequests;
+
+        /**
+         * 调度器单个主机最大并发请求数，默认为并发上限（OkHttp默认值只有5）
+         */
+        private Integer maxRequestsPerHost;
+
+        /**
+         * 连接超时时间
+         */
+        private Duration connectTimeout = Duration.ofSeconds(10);
+
+        /**
+         * 读超时时间
+         */
+        private Duration readTimeout = Duration.ofMinutes(5);
+
+        /**
+         * 写超时时间
+         */
+        private Duration writeTimeout = Duration.ofMinutes(5);
+
+        /**
+         * 连接复用率日志的输出间隔
+         */
+        private Duration statsInterval = Duration.ofSeconds(30);
+
+    }
+
+    /**
+     * 对象复制配置
+     */
+    @Data
+    public static class Copy {
+
+        /**
+         * 复制模式，默认流式复制
+         */
+        private CopyMode mode = CopyMode.STREAMING;
+
+        /**
+         * 流式复制的分片大小，也是单个传输占用堆内存的上限，MinIO要求不小于5MiB
+         */
+        private DataSize partSize = DataSize.ofMegabytes(5);
+
+        /**
+         * 服务端复制策略，默认不启用
+         */
+        private ServerSideCopy serverSide = ServerSideCopy.NEVER;
+
+    }
+
+    /**
+     * 增量同步检查点配置
+     */
+    @Data
+    public static class Checkpoint {
+
+        /**
+         * 是否开启增量同步，开启后已完成的路径不会重复复制，崩溃后从检查点继续
+         */
+        private boolean enabled = false;
+
+        /**
+         * 检查点文件（追加写）
+         */
+        private String file = "sync-checkpoint.log";
+
+        /**
+         * 命中检查点后是否再查询一次源对象，确认源对象自上次同步后没有变化
+         * 关闭时命中检查点直接跳过，不产生任何请求
+         */
+        private boolean verifySource = false;
+
+    }
+
+    /**
+     * 自适应并发配置（AIMD），初始上限为并行度
+     */
+    @Data
+    public static class Adaptive {
+
+        /**
+         * 是否开启自适应并发，关闭时固定按并行度执行
+         */
+        private boolean enabled = true;
+
+        /**
+         * 并发下限
+         */
+        private int minLimit = 4;
+
+        /**
+         * 并发上限
+         */
+        private int maxLimit = 128;
+
+        /**
+         * 统计窗口，每个窗口结束调整一次
+         */
+        private Duration window = Duration.ofSeconds(1);
+
+        /**
+         * 归一化延迟超过基线的倍数即视为拥塞
+         */
+        private double tolerance = 2.0;
+
+        /**
+         * 拥塞时的乘性减小系数
+         */
+        private double backoffRatio = 0.9;
+
+        /**
+         * 延迟基线每个窗口的上浮系数
+         */
+        private double baselineDrift = 1.01;
+
+    }
+
+    /**
+     * 大小分通道配置
+     * 小对象走高并发通道（受自适应并发控制），大对象走低并发的分片通道（范围GET并行下载+分片并行上传）
+     */
+    @Data
+    public static class Lanes {
+
+        /**
+         * 是否开启分通道
+         */
+        private boolean enabled = true;
+
+        /**
+         * 大对象阈值，视频无论大小都进入大对象通道
+         */
+        private DataSize largeThreshold = DataSize.ofMegabytes(64);
+
+        /**
+         * 是否信任数据库中的文件类型：图片直接进入小对象通道，不再查询源对象大小
+         */
+        private boolean trustFileType = true;
+
+        /**
+         * 大对象通道同时进行的对象数
+         */
+        private int largeConcurrency = 4;
+
+        /**
+         * 每个通道缓冲的已分类任务数，一个通道的缓冲区满了才会阻塞分类（进而阻塞另一个通道）
+         */
+        private int laneBuffer = 4096;
+
+        /**
+         * 大对象分片大小
+         */
+        private DataSize largePartSize = DataSize.ofMegabytes(16);
+
+        /**
+         * 单个大对象同时下载和上传的分片数，单个大对象的堆内存上限为分片大小*该值
+         */
+        private int partParallelism = 4;
+
+    }
+
+    /**
+     * 同步指标和进度配置，Micrometer指标始终记录，可通过/actuator/metrics/sync.*查看
+     */
+    @Data
+    public static class Metrics {
+
+        /**
+         * 进度日志的输出间隔
+         */
+        private Duration progressInterval = Duration.ofSeconds(10);
+
+        /**
+         * 是否异步统计待同步总数，用于估算剩余时间
+         */
+        private boolean countTotal = true;
+
+        /**
+         * 是否开启/sync/progress进度接口
+         */
+        private boolean endpointEnabled = true;
+
+    }
+
+    /**
+     * 单个对象的失败重试配置（指数退避+随机抖动），只重试网络异常、5xx和限流等暂时性错误
+     */
+    @Data
+    public static class Retry {
+
+        /**
+         * 是否开启重试
+         */
+        private boolean enabled = true;
+
+        /**
+         * 最大重试次数（不含第一次尝试）
+         */
+        private int maxAttempts = 5;
+
+        /**
+         * 第一次重试前的退避时间，之后每次翻倍
+         */
+        private Duration minBackoff = Duration.ofMillis(500);
+
+        /**
+         * 退避时间上限
+         */
+        private Duration maxBackoff = Duration.ofSeconds(30);
+
+        /**
+         * 随机抖动系数（0~1），避免大量对象同时重试
+         */
+        private double jitter = 0.5;
+
+    }
+
+    /**
+     * 端点熔断配置，按主机和端口分别熔断
+     * 连续失败达到阈值后熔断，熔断期间请求直接失败，熔断时间过后放行一个探测请求，成功则恢复
+     */
+    @Data
+    public static class CircuitBreaker {
+
+        /**
+         * 是否开启熔断
+         */
+        private boolean enabled = true;
+
+        /**
+         * 连续失败次数阈值
+         */
+        private int failureThreshold = 20;
+
+        /**
+         * 熔断时间
+         */
+        private Duration openDuration = Duration.ofSeconds(10);
+
+    }
+
+    /**
+     * 死信文件配置，重试后仍然失败的对象追加到死信文件，可以稍后重放
+     */
+    @Data
+    public static class DeadLetter {
+
+        /**
+         * 是否记录死信
+         */
+        private boolean enabled = true;
+
+        /**
+         * 死信文件（追加写）
+         */
+        private String file = "sync-dead-letter.log";
+
+        /**
+         * 是否重放死信：开启后本次运行只同步死信文件中的对象，不再查询数据库
+         */
+        private boolean replay = false;
+
+    }
+
+    /**
+     * 非法路径报告配置，路径不合法的数据库行不复制，追加到报告文件
+     */
+    @Data
+    public static class InvalidPath {
+
+        /**
+         * 是否记录非法路径
+         */
+        private boolean enabled = true;
+
+        /**
+         * 报告文件（追加写）
+         */
+        private String file = "sync-invalid-path.log";
+
+    }
+
+    /**
+     * 带宽限速配置（令牌桶），速率均为每秒字节数，未配置表示不限速
+     */
+    @Data
+    public static class Throttle {
+
+        /**
+         * 是否开启限速
+         */
+        private boolean enabled = false;
+
+        /**
+         * 全局速率
+         */
+        private DataSize globalRate;
+
+        /**
+         * 单桶速率：桶名称 -> 速率
+         */
+        private Map<String, DataSize> bucketRates = new HashMap<>();
+
+        /**
+         * 突发容量（按时间计），越小吞吐越平滑
+         */
+        private Duration burst = Duration.ofMillis(100);
+
+        /**
+         * 全局速率调度，按时间段覆盖globalRate
+         */
+        private List<Window> schedule = new ArrayList<>();
+
+        /**
+         * 检查调度时间段的间隔
+         */
+        private Duration scheduleCheckInterval = Duration.ofMinutes(1);
+
+    }
+
+    /**
+     * 复制校验配置，边传输边计算摘要，与源端和目标端的ETag比较
+     */
+    @Data
+    public static class Verify {
+
+        /**
+         * 是否开启校验，目标端开启服务端加密时ETag不是MD5，不能开启
+         */
+        private boolean enabled = false;
+
+        /**
+         * 校验记录中保存的内容摘要算法（与ETag比较始终使用MD5），分片复制的对象保存推算的ETag
+         */
+        private DigestAlgorithm algorithm = DigestAlgorithm.MD5;
+
+        /**
+         * 校验记录文件（追加写）
+         */
+        private String file = "sync-verify.log";
+
+        /**
+         * "sync-hash"线程数，0表示CPU核数
+         */
+        private int hashThreads = 0;
+
+    }
+
+    /**
+     * 同步计划（试运行）配置
+     */
+    @Data
+    public static class Plan {
+
+        /**
+         * 是否只生成同步计划，开启后不复制任何对象
+         */
+        private boolean enabled = false;
+
+        /**
+         * 列举分片的目录层数，前几层目录各自作为一个分片并行列举
+         */
+        private int shardDepth = 1;
+
+        /**
+         * 同时列举的分片数
+         */
+        private int shardParallelism = 8;
+
+        /**
+         * 归并时每个数据流预取的条数
+         */
+        private int batchSize = 1000;
+
+    }
+
+    /**
+     * 镜像删除配置：同步完成后删除目标端中已被软删除的路径对应的对象
+     */
+    @Data
+    public static class Mirror {
+
+        /**
+         * 是否开启镜像删除
+         */
+        private boolean enabled = false;
+
+        /**
+         * 每批处理的已删除行数，也是单次removeObjects的对象数上限（不超过1000）
+         */
+        private int batchSize = 1000;
+
+        /**
+         * 水位线文件，记录已处理到的（删除时间，主键）
+         */
+        private String watermarkFile = "sync-mirror.watermark";
+
+    }
+
+    /**
+     * 持续同步配置
+     */
+    @Data
+    public static class Continuous {
+
+        /**
+         * 是否开启持续同步，开启后启动时的全量同步结束后继续轮询新增和修改的行
+         */
+        private boolean enabled = false;
+
+        /**
+         * 启动时是否先做一次全量同步，关闭时直接从水位线开始轮询
+         */
+        private boolean initialSync = true;
+
+        /**
+         * 轮询间隔，上一轮没有处理完时跳过本轮
+         */
+        private Duration pollInterval = Duration.ofSeconds(2);
+
+        /**
+         * 稳定延迟，只读取更新时间早于"当前时间-稳定延迟"的行，
+         * 给更新时间较早但提交较晚的事务留出时间，避免水位线越过尚未提交的行
+         */
+        private Duration settleDelay = Duration.ofSeconds(2);
+
+        /**
+         * 水位线文件，记录已同步到的（更新时间，主键）
+         */
+        private String watermarkFile = "sync-continuous.watermark";
+
+    }
+
+    /**
+     * 执行方式配置
+     */
+    @Data
+    public static class Execution {
+
+        /**
+         * 阻塞的MinIO调用的执行方式，虚拟线程需要Java 21
+         */
+        private ExecutionMode mode = ExecutionMode.ELASTIC;
+
+        /**
+         * 虚拟线程方式下同时进行的阻塞调用数上限（信号量许可数），默认与线程池方式的线程上限一致
+         */
+        private Integer maxBlocking;
+
+    }
+
+    /**
+     * 限速调度时间段
+     */
+    @Data
+    public static class Window {
+
+        /**
+         * 开始时间（含），格式HH:mm
+         */
+        private String from;
+
+        /**
+         * 结束时间（不含），格式HH:mm，早于开始时间表示跨零点
+         */
+        private String to;
+
+        /**
+         * 该时间段的全局速率
+         */
+        private DataSize rate;
+
+    }
+
+}
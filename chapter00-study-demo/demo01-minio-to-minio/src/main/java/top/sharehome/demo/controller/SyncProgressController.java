@@ -0,0 +1,32 @@
+package top.sharehome.demo.controller;
+
+import jakarta.annotation.Resource;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import top.sharehome.demo.sync.SyncMetrics;
+import top.sharehome.demo.sync.SyncProgress;
+
+/**
+ * 同步进度接口
+ *
+ * @author AntonyCheng
+ */
+@RestController
+@RequestMapping("/sync")
+@ConditionalOnProperty(prefix = "sync.metrics", name = "endpoint-enabled", havingValue = "true", matchIfMissing = true)
+public class SyncProgressController {
+
+    @Resource
+    private SyncMetrics syncMetrics;
+
+    /**
+     * 当前同步进度
+     */
+    @GetMapping("/progress")
+    public SyncProgress progress() {
+        return syncMetrics.progress();
+    }
+
+}
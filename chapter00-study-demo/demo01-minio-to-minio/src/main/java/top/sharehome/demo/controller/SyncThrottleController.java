@@ -0,0 +1,62 @@
+package top.sharehome.demo.controller;
+
+import jakarta.annotation.Resource;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import top.sharehome.demo.sync.BandwidthLimiter;
+import top.sharehome.demo.sync.ObjectPath;
+
+/**
+ * 带宽限速接口
+ *
+ * @author AntonyCheng
+ */
+@RestController
+@RequestMapping("/sync/throttle")
+@ConditionalOnProperty(prefix = "sync.throttle", name = "enabled", havingValue = "true")
+public class SyncThrottleController {
+
+    @Resource
+    private BandwidthLimiter bandwidthLimiter;
+
+    /**
+     * 当前限速状态
+     */
+    @GetMapping
+    public BandwidthLimiter.ThrottleStatus status() {
+        return bandwidthLimiter.status();
+    }
+
+    /**
+     * 修改速率，例如：PUT /sync/throttle?rate=50MB（全局）、PUT /sync/throttle?bucket=demo-bucket&rate=20MB（单桶），rate=0表示不限速
+     * 手动修改的全局速率保持到下一次调度时间段切换，单桶rate=0会移除该桶的限速；速率无法解析或桶名称不合法时返回400
+     */
+    @PutMapping
+    public BandwidthLimiter.ThrottleStatus update(@RequestParam String rate,
+                                                  @RequestParam(required = false) String bucket) {
+        long bytesPerSecond;
+        try {
+            bytesPerSecond = DataSize.parse(rate).toBytes();
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "速率无法解析：" + rate, e);
+        }
+        if (bucket == null) {
+            bandwidthLimiter.setGlobalRate(bytesPerSecond);
+        } else {
+            try {
+                bandwidthLimiter.setBucketRate(bucket, bytesPerSecond);
+            } catch (ObjectPath.InvalidPathException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+            }
+        }
+        return bandwidthLimiter.status();
+    }
+
+}
@@ -2,9 +2,15 @@ package top.sharehome.demo.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Options;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.ResultMap;
 import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.cursor.Cursor;
 import top.sharehome.demo.model.entity.SpecieDataFile;
 
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 
 /**
@@ -18,6 +24,83 @@ public interface SpecieDataFileMapper extends BaseMapper<SpecieDataFile> {
     @Select("select  distinct path from specie_data_file   where substr(path,1,9) = '/xgadmin/' and del_flag = '0'")
     List<String> getAllPath();
 
+    /**
+     * 按主键游标分页查询待同步文件（只查主键、路径和文件类型）
+     * 主键范围扫描代替全表distinct，前缀使用like匹配，可以走path上的索引，避免substr导致索引失效
+     * 注意：不再distinct，同一路径可能出现多次，重复复制是幂等的，开启检查点后重复路径会被跳过
+     *
+     * @param lastId 上一页最后一行的主键，第一页传0
+     * @param prefix 路径前缀
+     * @param limit  每页行数
+     */
+    @Select("select specie_data_file_id, path, file_type from specie_data_file " +
+            "where specie_data_file_id > #{lastId} and path like concat(#{prefix}, '%') and del_flag = '0' " +
+            "order by specie_data_file_id limit #{limit}")
+    @ResultMap("BaseResultMap")
+    List<SpecieDataFile> listSyncPage(@Param("lastId") Long lastId, @Param("prefix") String prefix, @Param("limit") int limit);
+
+    /**
+     * 统计待同步文件数，条件与listSyncPage一致，用于估算同步剩余时间
+     *
+     * @param prefix 路径前缀
+     */
+    @Select("select count(*) from specie_data_file where path like concat(#{prefix}, '%') and del_flag = '0'")
+    long countSyncFiles(@Param("prefix") String prefix);
+
+    /**
+     * 以游标逐行读取待同步路径，按字节序排序（与S3列举顺序一致），用于同步计划的归并连接
+     * fetchSize为Integer.MIN_VALUE时MySQL驱动逐行返回结果，不会把结果集整体加载进内存
+     *
+     * @param prefix 路径前缀
+     */
+    @Select("select path from specie_data_file where path like concat(#{prefix}, '%') and del_flag = '0' order by binary path")
+    @Options(fetchSize = Integer.MIN_VALUE)
+    Cursor<String> cursorSortedPaths(@Param("prefix") String prefix);
+
+    /**
+     * 按（删除时间，主键）游标分页查询删除时间晚于水位线的已删除文件，镜像模式用
+     * 没有删除时间的已删除行无法按水位线增量读取，不会被查出
+     *
+     * @param deleteTime 水位线删除时间
+     * @param lastId     水位线主键（同一删除时间内）
+     * @param prefix     路径前缀
+     * @param limit      每页行数
+     */
+    @Select("select specie_data_file_id, path, delete_time from specie_data_file " +
+            "where del_flag = '1' and path like concat(#{prefix}, '%') and delete_time is not null " +
+            "and (delete_time > #{deleteTime} or (delete_time = #{deleteTime} and specie_data_file_id > #{lastId})) " +
+            "order by delete_time, specie_data_file_id limit #{limit}")
+    @ResultMap("BaseResultMap")
+    List<SpecieDataFile> listDeletedPage(@Param("deleteTime") Date deleteTime, @Param("lastId") Long lastId,
+                                         @Param("prefix") String prefix, @Param("limit") int limit);
+
+    /**
+     * 按（更新时间，主键）游标分页查询水位线之后、截止时间之前新增或修改的未删除文件，持续同步模式用
+     * 建议在(update_time, specie_data_file_id)上建立索引
+     *
+     * @param updateTime 水位线更新时间
+     * @param lastId     水位线主键（同一更新时间内）
+     * @param until      截止更新时间（不含）
+     * @param prefix     路径前缀
+     * @param limit      每页行数
+     */
+    @Select("select specie_data_file_id, path, file_type, update_time from specie_data_file " +
+            "where del_flag = '0' and path like concat(#{prefix}, '%') and update_time < #{until} " +
+            "and (update_time > #{updateTime} or (update_time = #{updateTime} and specie_data_file_id > #{lastId})) " +
+            "order by update_time, specie_data_file_id limit #{limit}")
+    @ResultMap("BaseResultMap")
+    List<SpecieDataFile> listChangedPage(@Param("updateTime") Date updateTime, @Param("lastId") Long lastId, @Param("until") Date until,
+                                         @Param("prefix") String prefix, @Param("limit") int limit);
+
+    /**
+     * 查询仍有未删除行引用的路径（同一路径可能被多行引用）
+     *
+     * @param paths 路径
+     */
+    @Select("<script>select distinct path from specie_data_file where del_flag = '0' and path in " +
+            "<foreach collection='paths' item='path' open='(' separator=',' close=')'>#{path}</foreach></script>")
+    List<String> listLivePaths(@Param("paths") Collection<String> paths);
+
 }
 
 
@@ -1,22 +1,24 @@
 package top.sharehome.demo.once;
 
-import cn.hutool.core.io.IoUtil;
-import io.minio.GetObjectArgs;
-import io.minio.MinioClient;
-import io.minio.PutObjectArgs;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.lang3.StringUtils;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.stereotype.Component;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 import reactor.core.scheduler.Schedulers;
-import top.sharehome.demo.mapper.SpecieDataFileMapper;
+import top.sharehome.demo.config.SyncProperties;
+import top.sharehome.demo.service.SpecieDataFileService;
+import top.sharehome.demo.sync.DeadLetterJournal;
+import top.sharehome.demo.sync.SyncContinuous;
+import top.sharehome.demo.sync.SyncMetrics;
+import top.sharehome.demo.sync.SyncMirror;
+import top.sharehome.demo.sync.SyncPipeline;
+import top.sharehome.demo.sync.SyncPlanner;
+import top.sharehome.demo.sync.SyncReport;
+import top.sharehome.demo.sync.SyncTask;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.InputStream;
-import java.util.stream.Stream;
+import java.io.IOException;
 
 /**
  * 项目启动就同步文件
@@ -28,89 +30,88 @@ import java.util.stream.Stream;
 public class SyncFiles implements CommandLineRunner {
 
     @Resource
-    private SpecieDataFileMapper specieDataFileMapper;
+    private SpecieDataFileService specieDataFileService;
+
+    @Resource
+    private SyncProperties syncProperties;
+
+    @Resource
+    private SyncPipeline syncPipeline;
+
+    @Resource
+    private SyncMetrics syncMetrics;
+
+    @Resource
+    private DeadLetterJournal deadLetterJournal;
+
+    @Resource
+    private SyncPlanner syncPlanner;
+
+    @Resource
+    private SyncMirror syncMirror;
+
+    @Resource
+    private SyncContinuous syncContinuous;
 
     @Override
-    public void run(String... args) {
-        Stream<String> pathStream = specieDataFileMapper.getAllPath().stream();
-        Flux.fromStream(pathStream)
-                // 开启并行且运行在名为"sync"的36线程执行器上
-                .parallel().runOn(Schedulers.newParallel("sync", 36))
-                .subscribe(path -> {
-                    try {
-                        minioToMinio(path);
-                    } catch (Exception e) {
-                        throw new RuntimeException(e);
-                    }
-                    log.info(path);
+    public void run(String... args) throws IOException {
+        if (!syncProperties.isRunOnStartup()) {
+            return;
+        }
+        // 同步计划：只统计，不复制
+        if (syncProperties.getPlan().isEnabled()) {
+            syncPlanner.plan(specieDataFileService.streamSortedPaths(syncProperties.getPathPrefix()))
+                    .subscribe(plan -> {
+                        log.info("同步计划：{}", plan);
+                    }, throwable -> {
+                        log.error("error:" + throwable);
+                    });
+            return;
+        }
+        // 重放死信：只同步上次最终失败的对象
+        if (syncProperties.getDeadLetter().isReplay()) {
+            syncPipeline.run(deadLetterJournal.replay())
+                    .subscribe(report -> {
+                        log.info("死信重放完成：{}", report);
+                        try {
+                            deadLetterJournal.replayCompleted();
+                        } catch (IOException e) {
+                            log.error("error:" + e);
+                        }
+                    }, throwable -> {
+                        log.error("error:" + throwable);
+                    });
+            return;
+        }
+        // 持续同步：全量同步开始前先确定水位线，全量同步期间新增的行之后会被轮询到
+        boolean continuous = syncContinuous.isEnabled();
+        if (continuous) {
+            syncContinuous.start();
+        }
+        boolean initialSync = !continuous || syncProperties.getContinuous().isInitialSync();
+        // 按主键游标分页拉取路径，不再一次性把全部路径加载进内存
+        Mono<SyncReport> fullSync = initialSync
+                ? syncPipeline.run(specieDataFileService.streamSyncFiles(syncProperties.getPathPrefix(), syncProperties.getPageSize())
+                        .map(file -> SyncTask.of(file.getPath(), file.getFileType())))
+                .doOnNext(report -> log.info("同步完成：{}", report))
+                // 镜像模式：复制完成后再删除目标端中已被软删除的对象
+                .flatMap(report -> syncMirror.isEnabled() ? syncMirror.run() : Mono.empty())
+                .doOnNext(mirrorReport -> log.info("镜像删除完成：{}", mirrorReport))
+                .then(Mono.empty())
+                : Mono.empty();
+        // 全量同步结束后转入持续同步，持续同步的进度日志在各轮之间累计
+        Flux<SyncReport> tail = continuous ? syncPipeline.monitored(syncContinuous.run()) : Flux.empty();
+        fullSync.thenMany(tail)
+                .subscribe(report -> {
                 }, throwable -> {
                     log.error("error:" + throwable);
                 });
-    }
-
-    /**
-     * 假设path是URI，形式为：/桶名称/文件路径.../文件本体
-     *
-     * @param path
-     * @throws Exception
-     */
-    private void minioToMinio(String path) throws Exception {
-        String bucketName = "demo_bucket";
-        String objectName = "object_name";
-        //源文件minIO地址
-        final String MINIO_URL = "http://xxx.xxx.xxx.xxx:9000";
-        //源文件minIOAccessKey
-        final String MINIO_ACCESS_KEY = "minio";
-        //源文件minIOSecretKey
-        final String MINIO_SECRET_KEY = "minio123";
-
-        //目标文件minIO地址
-        final String SJPT_MINIO_URL = "http://xxx.xxx.xxx.xxx:9000";
-        //目标文件minIOAccessKey
-        final String SJPT_MINIO_ACCESS_KEY = "minio";
-        //目标文件minIOSecretKey
-        final String SJPT_MINIO_SECRET_KEY = "minio123";
-        //源文件路径
-        if (StringUtils.isNotBlank(path)) {
-            //设置桶名称
-            int startIndex = path.indexOf("/") + 1; // 起始索引是第一个/后面
-            int endIndex = path.indexOf("/", startIndex); // 结束索引是第二个/
-            bucketName = path.substring(startIndex, endIndex);
-            //设置源文件名称
-            int secondSlashIndex = path.indexOf("/", path.indexOf("/") + 1);
-            String resultPath = path.substring(secondSlashIndex + 1);
-            objectName = resultPath;
+        // 总数单独异步统计，不阻塞第一页的复制，统计完成后进度日志才有预计剩余时间
+        if (syncProperties.getMetrics().isCountTotal()) {
+            Mono.fromCallable(() -> specieDataFileService.countSyncFiles(syncProperties.getPathPrefix()))
+                    .subscribeOn(Schedulers.boundedElastic())
+                    .subscribe(syncMetrics::setTotal, throwable -> log.warn("统计待同步文件数失败：" + throwable));
         }
-        //构造源文件客户端（IP地址、用户名、密码）
-        MinioClient srcClient = MinioClient.builder()
-                .endpoint(MINIO_URL)
-                .credentials(MINIO_ACCESS_KEY, MINIO_SECRET_KEY)
-                .build();
-        //构造目标文件客户端（IP地址、用户名、密码）
-        MinioClient destClient = MinioClient.builder()
-                .endpoint(SJPT_MINIO_URL)
-                .credentials(SJPT_MINIO_ACCESS_KEY, SJPT_MINIO_SECRET_KEY)
-                .build();
-        //构造源文件参数
-        GetObjectArgs srcArgs = GetObjectArgs.builder()
-                .bucket(bucketName)
-                .object(objectName)
-                .build();
-        //获取流数据
-        InputStream stream = srcClient.getObject(srcArgs);
-        ByteArrayOutputStream bs = new ByteArrayOutputStream();
-        IoUtil.copy(stream, bs);
-        stream = new ByteArrayInputStream(bs.toByteArray());
-        //构造发送数据参数
-        PutObjectArgs putObjectArgs = PutObjectArgs.builder()
-                .bucket(bucketName)
-                .object(objectName)
-                .stream(stream, stream.available(), -1)
-                //.contentType("application/octet-stream")
-                .build();
-        //发送数据
-        destClient.putObject(putObjectArgs);
-        stream.close();
     }
 
 }
\ No newline at end of file
@@ -1,8 +1,13 @@
 package top.sharehome.demo.service;
 
 import com.baomidou.mybatisplus.extension.service.IService;
+import reactor.core.publisher.Flux;
 import top.sharehome.demo.model.entity.SpecieDataFile;
 
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
 /**
  * 物种数据文件接口
  *
@@ -10,4 +15,55 @@ import top.sharehome.demo.model.entity.SpecieDataFile;
  */
 public interface SpecieDataFileService extends IService<SpecieDataFile> {
 
+    /**
+     * 以数据流的形式按主键游标分页拉取待同步文件，下游请求时才查询下一页，
+     * 内存中最多只有一两页数据，第一页查询返回后即可开始复制
+     *
+     * @param prefix   路径前缀
+     * @param pageSize 每页行数
+     */
+    Flux<SpecieDataFile> streamSyncFiles(String prefix, int pageSize);
+
+    /**
+     * 统计待同步文件数
+     *
+     * @param prefix 路径前缀
+     */
+    long countSyncFiles(String prefix);
+
+    /**
+     * 以数据流的形式逐行读取按字节序排序的待同步路径（可能重复）
+     *
+     * @param prefix 路径前缀
+     */
+    Flux<String> streamSortedPaths(String prefix);
+
+    /**
+     * 以数据流的形式按（删除时间，主键）游标分页拉取水位线之后删除的文件
+     *
+     * @param deleteTime 水位线删除时间
+     * @param lastId     水位线主键
+     * @param prefix     路径前缀
+     * @param pageSize   每页行数
+     */
+    Flux<SpecieDataFile> streamDeletedFiles(Date deleteTime, Long lastId, String prefix, int pageSize);
+
+    /**
+     * 以数据流的形式按（更新时间，主键）游标分页拉取水位线之后、截止时间之前新增或修改的文件
+     *
+     * @param updateTime 水位线更新时间
+     * @param lastId     水位线主键
+     * @param until      截止更新时间（不含）
+     * @param prefix     路径前缀
+     * @param pageSize   每页行数
+     */
+    Flux<SpecieDataFile> streamChangedFiles(Date updateTime, Long lastId, Date until, String prefix, int pageSize);
+
+    /**
+     * 查询仍有未删除行引用的路径
+     *
+     * @param paths 路径
+     */
+    List<String> listLivePaths(Collection<String> paths);
+
 }
@@ -1,10 +1,21 @@
 package top.sharehome.demo.service.impl;
 
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import jakarta.annotation.Resource;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
 import top.sharehome.demo.mapper.SpecieDataFileMapper;
 import top.sharehome.demo.model.entity.SpecieDataFile;
 import top.sharehome.demo.service.SpecieDataFileService;
+import top.sharehome.demo.sync.SyncMetrics;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.function.Function;
 
 /**
  * 物种数据文件接口实现类
@@ -15,6 +26,90 @@ import top.sharehome.demo.service.SpecieDataFileService;
 public class SpecieDataFileServiceImpl extends ServiceImpl<SpecieDataFileMapper, SpecieDataFile>
         implements SpecieDataFileService {
 
+    @Resource
+    private SyncMetrics syncMetrics;
+
+    @Resource
+    private SqlSessionFactory sqlSessionFactory;
+
+    @Override
+    public Flux<SpecieDataFile> streamSyncFiles(String prefix, int pageSize) {
+        // generate每次被下游请求时才查询一页，状态是上一页最后一行的主键
+        return Flux.<List<SpecieDataFile>, Long>generate(() -> 0L, (lastId, sink) -> {
+                    List<SpecieDataFile> page = syncMetrics.stage(SyncMetrics.STAGE_DB_FETCH)
+                            .record(() -> baseMapper.listSyncPage(lastId, prefix, pageSize));
+                    if (!page.isEmpty()) {
+                        sink.next(page);
+                    }
+                    if (page.size() < pageSize) {
+                        sink.complete();
+                        return lastId;
+                    }
+                    return page.get(page.size() - 1).getSpecieDataFileId();
+                })
+                // 预取一页即可，避免flatMapIterable默认预取256页
+                .flatMapIterable(Function.identity(), 1)
+                // 数据库查询是阻塞的，放到boundedElastic上执行
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    @Override
+    public Flux<String> streamSortedPaths(String prefix) {
+        // 游标需要SqlSession一直打开，直到数据流结束（完成、出错或取消）才关闭
+        return Flux.using(sqlSessionFactory::openSession,
+                        session -> Flux.fromIterable(session.getMapper(SpecieDataFileMapper.class).cursorSortedPaths(prefix)),
+                        SqlSession::close)
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    @Override
+    public Flux<SpecieDataFile> streamDeletedFiles(Date deleteTime, Long lastId, String prefix, int pageSize) {
+        // 状态是上一页最后一行（只用到删除时间和主键）
+        return Flux.<List<SpecieDataFile>, SpecieDataFile>generate(() -> new SpecieDataFile().setDeleteTime(deleteTime).setSpecieDataFileId(lastId), (last, sink) -> {
+                    List<SpecieDataFile> page = syncMetrics.stage(SyncMetrics.STAGE_DB_FETCH)
+                            .record(() -> baseMapper.listDeletedPage(last.getDeleteTime(), last.getSpecieDataFileId(), prefix, pageSize));
+                    if (!page.isEmpty()) {
+                        sink.next(page);
+                    }
+                    if (page.size() < pageSize) {
+                        sink.complete();
+                        return last;
+                    }
+                    return page.get(page.size() - 1);
+                })
+                .flatMapIterable(Function.identity(), 1)
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    @Override
+    public Flux<SpecieDataFile> streamChangedFiles(Date updateTime, Long lastId, Date until, String prefix, int pageSize) {
+        // 状态是上一页最后一行（只用到更新时间和主键）
+        return Flux.<List<SpecieDataFile>, SpecieDataFile>generate(() -> new SpecieDataFile().setUpdateTime(updateTime).setSpecieDataFileId(lastId), (last, sink) -> {
+                    List<SpecieDataFile> page = syncMetrics.stage(SyncMetrics.STAGE_DB_FETCH)
+                            .record(() -> baseMapper.listChangedPage(last.getUpdateTime(), last.getSpecieDataFileId(), until, prefix, pageSize));
+                    if (!page.isEmpty()) {
+                        sink.next(page);
+                    }
+                    if (page.size() < pageSize) {
+                        sink.complete();
+                        return last;
+                    }
+                    return page.get(page.size() - 1);
+                })
+                .flatMapIterable(Function.identity(), 1)
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    @Override
+    public List<String> listLivePaths(Collection<String> paths) {
+        return paths.isEmpty() ? List.of() : baseMapper.listLivePaths(paths);
+    }
+
+    @Override
+    public long countSyncFiles(String prefix) {
+        return baseMapper.countSyncFiles(prefix);
+    }
+
 }
 
 
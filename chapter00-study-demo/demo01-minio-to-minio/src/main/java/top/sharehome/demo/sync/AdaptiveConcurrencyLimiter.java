@@ -0,0 +1,170 @@
+package top.sharehome.demo.sync;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import top.sharehome.demo.config.SyncProperties;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 自适应并发限制器（AIMD）
+ * 按时间窗口统计完成传输的吞吐量和归一化延迟（每MiB耗时），每个窗口结束时调整并发上限：
+ * 1、窗口内有失败，或归一化延迟超过基线的tolerance倍（链路拥塞），乘性减小；
+ * 2、延迟正常且吞吐量没有下降，加性增大；
+ * 3、延迟正常但吞吐量下降，保持不变；
+ * 基线取观测到的最小归一化延迟，每个窗口缓慢上浮，以适应网络环境的变化
+ *
+ * @author AntonyCheng
+ */
+@Component
+@Slf4j
+public class AdaptiveConcurrencyLimiter {
+
+    private static final double MIB = 1024D * 1024D;
+
+    /**
+     * 小于该大小的对象按该大小归一化，避免小对象的固定开销把每MiB耗时放大
+     */
+    private static final long MIN_NORMALIZE_BYTES = 256 * 1024;
+
+    @Resource
+    private SyncProperties syncProperties;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition available = lock.newCondition();
+
+    private double limit;
+
+    private int inFlight;
+
+    private long windowStartNanos;
+
+    private long windowBytes;
+
+    private double windowNormalizedNanos;
+
+    private long windowSamples;
+
+    private boolean windowFailed;
+
+    private double lastThroughput;
+
+    private double baseline = Double.MAX_VALUE;
+
+    @PostConstruct
+    public void init() {
+        SyncProperties.Adaptive adaptive = syncProperties.getAdaptive();
+        limit = Math.max(adaptive.getMinLimit(), Math.min(syncProperties.getParallelism(), syncProperties.maxConcurrency()));
+        windowStartNanos = System.nanoTime();
+        Gauge.builder("sync.concurrency.limit", this, AdaptiveConcurrencyLimiter::getLimit)
+                .description("当前允许同时进行的传输数")
+                .register(meterRegistry);
+        Gauge.builder("sync.concurrency.in-flight", this, AdaptiveConcurrencyLimiter::getInFlight)
+                .description("当前正在进行的传输数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 是否开启自适应并发
+     */
+    public boolean isEnabled() {
+        return syncProperties.getAdaptive().isEnabled();
+    }
+
+    /**
+     * 等待直到正在进行的传输数低于当前上限
+     */
+    public void acquire() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (inFlight >= (int) limit) {
+                available.await();
+            }
+            inFlight++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 归还许可并记录一次传输的结果
+     *
+     * @param bytes   传输的字节数，跳过的对象传-1，不参与统计
+     * @param nanos   传输耗时
+     * @param success 是否成功
+     */
+    public void release(long bytes, long nanos, boolean success) {
+        lock.lock();
+        try {
+            inFlight--;
+            if (!success) {
+                windowFailed = true;
+            } else if (bytes >= 0) {
+                windowBytes += bytes;
+                windowNormalizedNanos += nanos / (Math.max(bytes, MIN_NORMALIZE_BYTES) / MIB);
+                windowSamples++;
+            }
+            long now = System.nanoTime();
+            if (now - windowStartNanos >= syncProperties.getAdaptive().getWindow().toNanos()) {
+                adjust(now);
+            }
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 窗口结束，根据吞吐量和延迟调整上限
+     */
+    private void adjust(long now) {
+        SyncProperties.Adaptive adaptive = syncProperties.getAdaptive();
+        double throughput = windowBytes / ((now - windowStartNanos) / 1e9);
+        double latency = windowSamples == 0 ? 0 : windowNormalizedNanos / windowSamples;
+        double previous = limit;
+        if (windowSamples > 0) {
+            baseline = Math.min(baseline * adaptive.getBaselineDrift(), latency);
+        }
+        if (windowFailed || (windowSamples > 0 && latency > baseline * adaptive.getTolerance())) {
+            limit = Math.max(adaptive.getMinLimit(), limit * adaptive.getBackoffRatio());
+        } else if (windowSamples > 0 && throughput >= lastThroughput * 0.95) {
+            limit = Math.min(syncProperties.maxConcurrency(), limit + 1);
+        }
+        if ((int) previous != (int) limit) {
+            log.debug("并发上限调整：{} -> {}，吞吐量{}MB/s，每MiB耗时{}ms（基线{}ms）", (int) previous, (int) limit,
+                    String.format("%.2f", throughput / MIB), String.format("%.1f", latency / 1e6), String.format("%.1f", baseline / 1e6));
+        }
+        if (windowSamples > 0) {
+            lastThroughput = throughput;
+        }
+        windowStartNanos = now;
+        windowBytes = 0;
+        windowNormalizedNanos = 0;
+        windowSamples = 0;
+        windowFailed = false;
+    }
+
+    /**
+     * 当前并发上限
+     */
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    /**
+     * 当前正在进行的传输数
+     */
+    public int getInFlight() {
+        return inFlight;
+    }
+
+}
@@ -0,0 +1,203 @@
+package top.sharehome.demo.sync;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+import top.sharehome.demo.config.SyncProperties;
+
+import java.io.InputStream;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 带宽限速器
+ * 复制数据流每读取一段字节，先向全局令牌桶和所在桶的令牌桶申请令牌，取两者中较长的等待时间，
+ * 全局速率可以按时间段调度（例如白天50MB/s、夜间200MB/s），全局和单桶速率都可以在运行时修改；
+ * 服务端复制的字节不经过JVM，不受限速影响
+ * 指标：sync.throttle.wait（因限速等待的时间，scope=global/bucket）、sync.throttle.rate（当前全局速率）
+ *
+ * @author AntonyCheng
+ */
+@Component
+@Slf4j
+public class BandwidthLimiter {
+
+    @Resource
+    private SyncProperties syncProperties;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    private TokenBucket global;
+
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+    private Timer globalWait;
+
+    private Timer bucketWait;
+
+    private Disposable scheduleTask;
+
+    /**
+     * 当前生效的调度时间段，时间段切换时才覆盖全局速率，运行时手动修改的速率保持到下一次切换
+     */
+    private volatile SyncProperties.Window activeWindow;
+
+    @PostConstruct
+    public void init() {
+        SyncProperties.Throttle throttle = syncProperties.getThrottle();
+        global = new TokenBucket(toBytes(throttle.getGlobalRate()), throttle.getBurst().toNanos());
+        throttle.getBucketRates().forEach((bucketName, rate) -> setBucketRate(bucketName, toBytes(rate)));
+        globalWait = Timer.builder("sync.throttle.wait").tag("scope", "global").register(meterRegistry);
+        bucketWait = Timer.builder("sync.throttle.wait").tag("scope", "bucket").register(meterRegistry);
+        Gauge.builder("sync.throttle.rate", global, TokenBucket::getBytesPerSecond).baseUnit("bytes").register(meterRegistry);
+        if (isEnabled() && !throttle.getSchedule().isEmpty()) {
+            applySchedule();
+            scheduleTask = Flux.interval(throttle.getScheduleCheckInterval(), Schedulers.single())
+                    .subscribe(tick -> applySchedule());
+        }
+    }
+
+    /**
+     * 是否开启限速
+     */
+    public boolean isEnabled() {
+        return syncProperties.getThrottle().isEnabled();
+    }
+
+    /**
+     * 给复制数据流加上限速，未开启限速时原样返回
+     */
+    public InputStream throttle(InputStream in, String bucketName) {
+        return isEnabled() ? new ThrottledInputStream(in, this, bucketName) : in;
+    }
+
+    /**
+     * 申请字节令牌，全局和单桶同时预约，按较长的等待时间阻塞
+     */
+    public void acquire(String bucketName, long bytes) throws InterruptedException {
+        long globalNanos = global.reserve(bytes);
+        TokenBucket bucket = bucketName == null ? null : buckets.get(bucketName);
+        long bucketNanos = bucket == null ? 0 : bucket.reserve(bytes);
+        long waitNanos = Math.max(globalNanos, bucketNanos);
+        if (waitNanos <= 0) {
+            return;
+        }
+        if (globalNanos > 0) {
+            globalWait.record(globalNanos, TimeUnit.NANOSECONDS);
+        }
+        if (bucketNanos > 0) {
+            bucketWait.record(bucketNanos, TimeUnit.NANOSECONDS);
+        }
+        TimeUnit.NANOSECONDS.sleep(waitNanos);
+    }
+
+    /**
+     * 修改全局速率（字节/秒），小于等于0表示不限速
+     */
+    public void setGlobalRate(long bytesPerSecond) {
+        global.setBytesPerSecond(bytesPerSecond);
+        log.info("全局限速：{}", format(bytesPerSecond));
+    }
+
+    /**
+     * 修改单桶速率（字节/秒），小于等于0表示不限速并移除该桶的限速
+     *
+     * @throws ObjectPath.InvalidPathException 桶名称不合法时抛出
+     */
+    public void setBucketRate(String bucketName, long bytesPerSecond) {
+        ObjectPath.validateBucketName(bucketName);
+        if (bytesPerSecond <= 0) {
+            buckets.remove(bucketName);
+        } else {
+            buckets.computeIfAbsent(bucketName, key -> new TokenBucket(bytesPerSecond, syncProperties.getThrottle().getBurst().toNanos()))
+                    .setBytesPerSecond(bytesPerSecond);
+        }
+        log.info("桶限速：{} {}", bucketName, format(bytesPerSecond));
+    }
+
+    /**
+     * 当前限速状态
+     */
+    public ThrottleStatus status() {
+        Map<String, Long> bucketRates = new TreeMap<>();
+        buckets.forEach((bucketName, bucket) -> bucketRates.put(bucketName, bucket.getBytesPerSecond()));
+        return new ThrottleStatus(isEnabled(), global.getBytesPerSecond(), bucketRates,
+                globalWait.totalTime(TimeUnit.SECONDS), bucketWait.totalTime(TimeUnit.SECONDS));
+    }
+
+    /**
+     * 按当前时间选择调度时间段，时间段切换时设置全局速率
+     */
+    private void applySchedule() {
+        SyncProperties.Window window = currentWindow(syncProperties.getThrottle().getSchedule(), LocalTime.now());
+        if (window == null || window == activeWindow) {
+            return;
+        }
+        activeWindow = window;
+        log.info("限速时间段切换：{}-{}", window.getFrom(), window.getTo());
+        setGlobalRate(toBytes(window.getRate()));
+    }
+
+    /**
+     * 当前时间所在的时间段，结束时间早于开始时间表示跨零点
+     */
+    static SyncProperties.Window currentWindow(List<SyncProperties.Window> schedule, LocalTime now) {
+        for (SyncProperties.Window window : schedule) {
+            LocalTime from = LocalTime.parse(window.getFrom());
+            LocalTime to = LocalTime.parse(window.getTo());
+            boolean active = from.isBefore(to)
+                    ? !now.isBefore(from) && now.isBefore(to)
+                    : !now.isBefore(from) || now.isBefore(to);
+            if (active) {
+                return window;
+            }
+        }
+        return null;
+    }
+
+    private static long toBytes(DataSize rate) {
+        return rate == null ? 0 : rate.toBytes();
+    }
+
+    private static String format(long bytesPerSecond) {
+        return bytesPerSecond <= 0 ? "不限速" : String.format("%.2fMB/s", bytesPerSecond / 1048576D);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (scheduleTask != null) {
+            scheduleTask.dispose();
+        }
+    }
+
+    /**
+     * 限速状态
+     *
+     * @param enabled                是否开启限速
+     * @param globalBytesPerSecond   全局速率（字节/秒），0表示不限速
+     * @param bucketBytesPerSecond   各桶速率（字节/秒）
+     * @param globalThrottledSeconds 因全局限速累计等待的秒数
+     * @param bucketThrottledSeconds 因单桶限速累计等待的秒数
+     */
+    public record ThrottleStatus(boolean enabled,
+                                 long globalBytesPerSecond,
+                                 Map<String, Long> bucketBytesPerSecond,
+                                 double globalThrottledSeconds,
+                                 double bucketThrottledSeconds) {
+    }
+
+}
@@ -0,0 +1,77 @@
+package top.sharehome.demo.sync;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import org.springframework.stereotype.Component;
+import top.sharehome.demo.config.SyncProperties;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 在途字节预算
+ * 每个传输在占用堆内存之前先按预计占用的字节数申请许可（以KiB为单位），
+ * 与并发对象数分开限制：小对象多时受并发数限制，大对象多时受字节预算限制
+ *
+ * @author AntonyCheng
+ */
+@Component
+public class ByteBudget {
+
+    private static final long KIB = 1024L;
+
+    @Resource
+    private SyncProperties syncProperties;
+
+    private Semaphore semaphore;
+
+    private int maxPermits;
+
+    @PostConstruct
+    public void init() {
+        maxPermits = (int) Math.min(Integer.MAX_VALUE, Math.max(1, syncProperties.getMaxInFlightBytes().toBytes() / KIB));
+        // 公平模式，避免大额申请一直被小额申请插队
+        semaphore = new Semaphore(maxPermits, true);
+    }
+
+    /**
+     * 申请字节预算，超过总预算的申请按总预算处理，保证单个超大对象也能独占预算执行
+     *
+     * @param bytes 预计占用的字节数
+     */
+    public Permit acquire(long bytes) throws InterruptedException {
+        int permits = (int) Math.min(maxPermits, Math.max(1, (bytes + KIB - 1) / KIB));
+        semaphore.acquire(permits);
+        return new Permit(permits);
+    }
+
+    /**
+     * 当前在途字节数
+     */
+    public long inFlightBytes() {
+        return (maxPermits - (long) semaphore.availablePermits()) * KIB;
+    }
+
+    /**
+     * 字节预算许可，关闭时归还
+     */
+    public class Permit implements AutoCloseable {
+
+        private final int permits;
+
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(int permits) {
+            this.permits = permits;
+        }
+
+        @Override
+        public void close() {
+            if (released.compareAndSet(false, true)) {
+                semaphore.release(permits);
+            }
+        }
+
+    }
+
+}
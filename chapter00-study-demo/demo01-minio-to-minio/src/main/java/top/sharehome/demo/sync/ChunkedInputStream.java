@@ -0,0 +1,75 @@
+package top.sharehome.demo.sync;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * 把块数据流（Stream<byte[]>）适配成输入流，供putObject读取；关闭时关闭数据流（取消订阅）
+ * 块在多个目标端之间共享，只读不写
+ *
+ * @author AntonyCheng
+ */
+public class ChunkedInputStream extends InputStream {
+
+    private final Stream<byte[]> chunks;
+
+    private final Iterator<byte[]> iterator;
+
+    private byte[] current;
+
+    private int position;
+
+    public ChunkedInputStream(Stream<byte[]> chunks) {
+        this.chunks = chunks;
+        this.iterator = chunks.iterator();
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!ensure()) {
+            return -1;
+        }
+        return current[position++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!ensure()) {
+            return -1;
+        }
+        int n = Math.min(len, current.length - position);
+        System.arraycopy(current, position, b, off, n);
+        position += n;
+        return n;
+    }
+
+    @Override
+    public void close() {
+        chunks.close();
+    }
+
+    /**
+     * 当前块读完时取下一块，源对象读取失败时抛出IOException
+     */
+    private boolean ensure() throws IOException {
+        while (current == null || position == current.length) {
+            try {
+                if (!iterator.hasNext()) {
+                    return false;
+                }
+                current = iterator.next();
+            } catch (RuntimeException e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                throw cause instanceof IOException io ? io : new IOException(cause);
+            }
+            position = 0;
+        }
+        return true;
+    }
+
+}
@@ -0,0 +1,150 @@
+package top.sharehome.demo.sync;
+
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
+import okhttp3.Response;
+import top.sharehome.demo.config.SyncProperties;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 端点熔断拦截器
+ * 挂在共享的OkHttpClient上，按主机和端口分别统计连续失败（网络异常、5xx、429），达到阈值后熔断，
+ * 熔断期间请求不再发出，直接抛出CircuitOpenException，由上层的退避重试等待端点恢复；
+ * 熔断时间过后放行一个探测请求，成功则恢复，失败则重新熔断
+ *
+ * @author AntonyCheng
+ */
+@Slf4j
+public class CircuitBreakerInterceptor implements Interceptor {
+
+    private final SyncProperties.CircuitBreaker config;
+
+    private final Map<String, Breaker> breakers = new ConcurrentHashMap<>();
+
+    public CircuitBreakerInterceptor(SyncProperties.CircuitBreaker config) {
+        this.config = config;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        if (!config.isEnabled()) {
+            return chain.proceed(chain.request());
+        }
+        HttpUrl url = chain.request().url();
+        Breaker breaker = breakers.computeIfAbsent(url.host() + ":" + url.port(), Breaker::new);
+        breaker.acquire();
+        Response response;
+        try {
+            response = chain.proceed(chain.request());
+        } catch (IOException | RuntimeException e) {
+            breaker.onFailure();
+            throw e;
+        }
+        if (response.code() >= 500 || response.code() == 429) {
+            breaker.onFailure();
+        } else {
+            breaker.onSuccess();
+        }
+        return response;
+    }
+
+    /**
+     * 各端点的熔断状态
+     */
+    public Map<String, State> states() {
+        Map<String, State> states = new ConcurrentHashMap<>();
+        breakers.forEach((endpoint, breaker) -> states.put(endpoint, breaker.state()));
+        return states;
+    }
+
+    /**
+     * 熔断状态
+     */
+    public enum State {
+
+        /**
+         * 正常放行
+         */
+        CLOSED,
+
+        /**
+         * 熔断中，请求直接失败
+         */
+        OPEN,
+
+        /**
+         * 熔断时间已过，放行一个探测请求
+         */
+        HALF_OPEN
+
+    }
+
+    /**
+     * 端点熔断中，请求未发出
+     * 继承IOException，与网络异常一样视为暂时性错误
+     */
+    public static class CircuitOpenException extends IOException {
+
+        public CircuitOpenException(String endpoint) {
+            super("端点已熔断：" + endpoint);
+        }
+
+    }
+
+    /**
+     * 单个端点的熔断器
+     */
+    private class Breaker {
+
+        private final String endpoint;
+
+        private State state = State.CLOSED;
+
+        private int consecutiveFailures;
+
+        private long openedAt;
+
+        private Breaker(String endpoint) {
+            this.endpoint = endpoint;
+        }
+
+        private synchronized State state() {
+            return state;
+        }
+
+        private synchronized void acquire() throws CircuitOpenException {
+            if (state == State.CLOSED) {
+                return;
+            }
+            // 熔断时间过后只放行一个探测请求，探测结束前其余请求继续失败
+            if (state == State.OPEN && System.nanoTime() - openedAt >= config.getOpenDuration().toNanos()) {
+                state = State.HALF_OPEN;
+                return;
+            }
+            throw new CircuitOpenException(endpoint);
+        }
+
+        private synchronized void onSuccess() {
+            if (state != State.CLOSED) {
+                log.info("端点恢复：{}", endpoint);
+            }
+            state = State.CLOSED;
+            consecutiveFailures = 0;
+        }
+
+        private synchronized void onFailure() {
+            consecutiveFailures++;
+            if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= config.getFailureThreshold())) {
+                log.warn("端点熔断：{}，连续失败{}次，{}后重新探测", endpoint, consecutiveFailures, config.getOpenDuration());
+                state = State.OPEN;
+                openedAt = System.nanoTime();
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,71 @@
+package top.sharehome.demo.sync;
+
+import okhttp3.Call;
+import okhttp3.Connection;
+import okhttp3.EventListener;
+
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 连接复用监听器
+ * 每次请求拿到连接都会触发connectionAcquired，只有新建TCP连接时才会触发connectStart，
+ * 两者之差就是从连接池复用的次数，按主机分别统计
+ *
+ * @author AntonyCheng
+ */
+public class ConnectionReuseListener extends EventListener {
+
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+
+    @Override
+    public void connectStart(Call call, InetSocketAddress inetSocketAddress, Proxy proxy) {
+        counter(call).connects.increment();
+    }
+
+    @Override
+    public void connectionAcquired(Call call, Connection connection) {
+        counter(call).acquires.increment();
+    }
+
+    /**
+     * 获取各主机的连接复用快照
+     */
+    public Map<String, ReuseStats> snapshot() {
+        Map<String, ReuseStats> result = new TreeMap<>();
+        counters.forEach((host, counter) -> result.put(host, new ReuseStats(counter.acquires.sum(), counter.connects.sum())));
+        return result;
+    }
+
+    private Counter counter(Call call) {
+        String host = call.request().url().host() + ":" + call.request().url().port();
+        return counters.computeIfAbsent(host, key -> new Counter());
+    }
+
+    private static class Counter {
+        private final LongAdder acquires = new LongAdder();
+        private final LongAdder connects = new LongAdder();
+    }
+
+    /**
+     * 连接复用统计
+     *
+     * @param acquires 获取连接次数
+     * @param connects 新建连接次数
+     */
+    public record ReuseStats(long acquires, long connects) {
+
+        /**
+         * 连接复用率
+         */
+        public double reuseRate() {
+            return acquires == 0 ? 0D : (double) Math.max(acquires - connects, 0) / acquires;
+        }
+
+    }
+
+}
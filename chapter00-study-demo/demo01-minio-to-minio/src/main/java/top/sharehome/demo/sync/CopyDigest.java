@@ -0,0 +1,14 @@
+package top.sharehome.demo.sync;
+
+/**
+ * 复制过程中计算出的摘要
+ *
+ * @param size      读取的字节数
+ * @param md5       整个对象的MD5，分片复制时为null（分片并行下载，没有整体顺序）
+ * @param etag      按本次上传方式推算的目标对象ETag
+ * @param algorithm 内容摘要算法
+ * @param content   内容摘要，分片复制时为推算的ETag
+ * @author AntonyCheng
+ */
+public record CopyDigest(long size, String md5, String etag, DigestAlgorithm algorithm, String content) {
+}
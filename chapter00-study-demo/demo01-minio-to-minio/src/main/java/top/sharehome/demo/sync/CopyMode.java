@@ -0,0 +1,20 @@
+package top.sharehome.demo.sync;
+
+/**
+ * 对象复制模式
+ *
+ * @author AntonyCheng
+ */
+public enum CopyMode {
+
+    /**
+     * 整体缓冲：先把源对象完整读入内存再上传，对象越大占用堆内存越多，仅用于对比
+     */
+    BUFFERED,
+
+    /**
+     * 流式复制：源对象的输入流直接交给目标端上传，堆内存只占用一个分片
+     */
+    STREAMING
+
+}
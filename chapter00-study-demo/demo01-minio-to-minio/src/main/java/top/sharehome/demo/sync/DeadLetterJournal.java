@@ -0,0 +1,156 @@
+package top.sharehome.demo.sync;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import top.sharehome.demo.config.SyncProperties;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 死信文件
+ * 重试后仍然失败的对象以追加写的方式记录下来，每行格式为：时间\t路径\t文件类型\t异常，
+ * 重放时先把死信文件（连同上次没有重放完的文件）合并到"死信文件.replay"，按路径去重后交给流水线，
+ * 重放过程中新产生的失败照常写入死信文件，重放完成后删除.replay文件
+ *
+ * @author AntonyCheng
+ */
+@Component
+@Slf4j
+public class DeadLetterJournal {
+
+    @Resource
+    private SyncProperties syncProperties;
+
+    /**
+     * 待重放的对象：路径 -> 文件类型（可能为空字符串）
+     */
+    private final Map<String, String> pending = new LinkedHashMap<>();
+
+    private BufferedWriter writer;
+
+    /**
+     * 追加写死信的锁
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    @PostConstruct
+    public void init() throws IOException {
+        if (!isEnabled()) {
+            return;
+        }
+        Path file = file();
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        if (syncProperties.getDeadLetter().isReplay()) {
+            Path replayFile = replayFile();
+            load(replayFile);
+            load(file);
+            Files.write(replayFile, pending.entrySet().stream()
+                    .map(entry -> LocalDateTime.now() + "\t" + entry.getKey() + "\t" + entry.getValue() + "\t")
+                    .toList(), StandardCharsets.UTF_8);
+            Files.deleteIfExists(file);
+            log.info("死信已加载：{}，共{}个路径待重放", replayFile, pending.size());
+        }
+        writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    private void load(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split("\t", 4);
+                // 崩溃时写了一半的记录
+                if (fields.length < 4) {
+                    continue;
+                }
+                pending.put(fields[1], fields[2]);
+            }
+        }
+    }
+
+    /**
+     * 是否记录死信
+     */
+    public boolean isEnabled() {
+        return syncProperties.getDeadLetter().isEnabled();
+    }
+
+    /**
+     * 记录一个最终失败的对象，写完立即刷出
+     */
+    public void record(SyncTask task, Throwable error) {
+        if (!isEnabled()) {
+            return;
+        }
+        // 异常信息中的制表符和换行会破坏行格式
+        String message = StringUtils.normalizeSpace(String.valueOf(error));
+        lock.lock();
+        try {
+            writer.write(LocalDateTime.now() + "\t" + task.getPath() + "\t" + StringUtils.defaultString(task.getFileType()) + "\t" + message);
+            writer.newLine();
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 待重放的同步任务数据流，未开启重放时为空
+     */
+    public Flux<SyncTask> replay() {
+        return Flux.fromIterable(pending.entrySet())
+                .map(entry -> SyncTask.of(entry.getKey(), StringUtils.defaultIfEmpty(entry.getValue(), null)));
+    }
+
+    /**
+     * 重放完成，删除.replay文件，重放中再次失败的对象已经写入新的死信文件
+     */
+    public void replayCompleted() throws IOException {
+        Files.deleteIfExists(replayFile());
+        log.info("死信重放完成：{}个路径", pending.size());
+        pending.clear();
+    }
+
+    private Path file() {
+        return Path.of(syncProperties.getDeadLetter().getFile());
+    }
+
+    private Path replayFile() {
+        return Path.of(syncProperties.getDeadLetter().getFile() + ".replay");
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (writer != null) {
+                writer.close();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+}
@@ -0,0 +1,101 @@
+package top.sharehome.demo.sync;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.zip.CRC32C;
+import java.util.zip.Checksum;
+
+/**
+ * 校验记录中保存的内容摘要算法
+ *
+ * @author AntonyCheng
+ */
+public enum DigestAlgorithm {
+
+    /**
+     * MD5，与单次上传对象的ETag相同，不需要额外计算
+     */
+    MD5,
+
+    /**
+     * SHA-256，适合长期审计
+     */
+    SHA256,
+
+    /**
+     * CRC32C，计算最快，只能发现传输损坏
+     */
+    CRC32C;
+
+    /**
+     * 创建增量摘要
+     */
+    public Hasher newHasher() {
+        return switch (this) {
+            case MD5 -> messageDigest("MD5");
+            case SHA256 -> messageDigest("SHA-256");
+            case CRC32C -> checksum(new CRC32C());
+        };
+    }
+
+    static Hasher messageDigest(String algorithm) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        return new Hasher() {
+            @Override
+            public void update(byte[] b, int off, int len) {
+                digest.update(b, off, len);
+            }
+
+            @Override
+            public byte[] digest() {
+                return digest.digest();
+            }
+        };
+    }
+
+    /**
+     * 一次性计算整段字节的摘要
+     */
+    static byte[] messageDigestOf(String algorithm, byte[] data) {
+        Hasher hasher = messageDigest(algorithm);
+        hasher.update(data, 0, data.length);
+        return hasher.digest();
+    }
+
+    private static Hasher checksum(Checksum checksum) {
+        return new Hasher() {
+            @Override
+            public void update(byte[] b, int off, int len) {
+                checksum.update(b, off, len);
+            }
+
+            @Override
+            public byte[] digest() {
+                long value = checksum.getValue();
+                return new byte[]{(byte) (value >>> 24), (byte) (value >>> 16), (byte) (value >>> 8), (byte) value};
+            }
+        };
+    }
+
+    /**
+     * 增量摘要，非线程安全
+     */
+    public interface Hasher {
+
+        void update(byte[] b, int off, int len);
+
+        byte[] digest();
+
+        default String hex() {
+            return HexFormat.of().formatHex(digest());
+        }
+
+    }
+
+}
@@ -0,0 +1,59 @@
+package top.sharehome.demo.sync;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+
+/**
+ * 摘要输入流，读到的字节原样返回，同时提交给StreamDigest计算摘要，不需要再读一遍对象
+ *
+ * @author AntonyCheng
+ */
+public class DigestingInputStream extends FilterInputStream {
+
+    private final StreamDigest digest;
+
+    public DigestingInputStream(InputStream in, StreamDigest digest) {
+        super(in);
+        this.digest = digest;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b >= 0) {
+            update(new byte[]{(byte) b}, 0, 1);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int n = super.read(b, off, len);
+        if (n > 0) {
+            update(b, off, n);
+        }
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        throw new IOException("校验模式下不支持跳过字节");
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    private void update(byte[] b, int off, int len) throws InterruptedIOException {
+        try {
+            digest.update(b, off, len);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("摘要计算等待被中断");
+        }
+    }
+
+}
@@ -0,0 +1,20 @@
+package top.sharehome.demo.sync;
+
+/**
+ * 阻塞的MinIO调用的执行方式
+ *
+ * @author AntonyCheng
+ */
+public enum ExecutionMode {
+
+    /**
+     * 有界弹性线程池：每个进行中的传输占用一个平台线程，线程数上限即并发上限
+     */
+    ELASTIC,
+
+    /**
+     * 虚拟线程：每个传输一个虚拟线程，阻塞时只挂起虚拟线程、让出载体线程，同时进行的阻塞调用数由信号量限制
+     */
+    VIRTUAL
+
+}
@@ -0,0 +1,95 @@
+package top.sharehome.demo.sync;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.stereotype.Component;
+import top.sharehome.demo.config.SyncProperties;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 非法路径报告
+ * 路径不合法的数据库行不会被复制，以追加写的方式记录下来交给人工修数据，每行格式为：时间\t路径\t文件类型\t原因；
+ * 与死信不同，这些行重试或重放也不会成功，所以单独成文件
+ *
+ * @author AntonyCheng
+ */
+@Component
+@Slf4j
+public class InvalidPathReport {
+
+    @Resource
+    private SyncProperties syncProperties;
+
+    private BufferedWriter writer;
+
+    /**
+     * 追加写报告的锁
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    @PostConstruct
+    public void init() throws IOException {
+        if (!isEnabled()) {
+            return;
+        }
+        Path file = Path.of(syncProperties.getInvalidPath().getFile());
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * 是否记录非法路径
+     */
+    public boolean isEnabled() {
+        return syncProperties.getInvalidPath().isEnabled();
+    }
+
+    /**
+     * 记录一个路径不合法的任务，写完立即刷出
+     */
+    public void record(SyncTask task) {
+        log.warn("非法路径：{}，{}", task.getPath(), task.getInvalidReason());
+        if (!isEnabled()) {
+            return;
+        }
+        // 路径本身可能带有制表符和换行
+        String path = StringUtils.normalizeSpace(task.getPath());
+        lock.lock();
+        try {
+            writer.write(LocalDateTime.now() + "\t" + path + "\t" + StringUtils.defaultString(task.getFileType()) + "\t" + task.getInvalidReason());
+            writer.newLine();
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (writer != null) {
+                writer.close();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+}
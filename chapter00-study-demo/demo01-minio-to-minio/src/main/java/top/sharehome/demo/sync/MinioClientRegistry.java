@@ -0,0 +1,165 @@
+package top.sharehome.demo.sync;
+
+import io.minio.MinioAsyncClient;
+import io.minio.MinioClient;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+import top.sharehome.demo.config.SyncProperties;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MinIO客户端注册中心
+ * 每个端点只构造一个MinioClient，所有客户端共享同一个OkHttpClient，
+ * 这样连接池和调度器才能在同步的所有线程之间复用Keep-Alive连接
+ *
+ * @author AntonyCheng
+ */
+@Component
+@Slf4j
+public class MinioClientRegistry {
+
+    @Resource
+    private SyncProperties syncProperties;
+
+    private final Map<String, MinioClient> clients = new ConcurrentHashMap<>();
+
+    private final Map<String, MultipartMinioClient> multipartClients = new ConcurrentHashMap<>();
+
+    private final ConnectionReuseListener reuseListener = new ConnectionReuseListener();
+
+    private CircuitBreakerInterceptor circuitBreaker;
+
+    private OkHttpClient httpClient;
+
+    private Disposable statsTask;
+
+    @PostConstruct
+    public void init() {
+        SyncProperties.Pool pool = syncProperties.getPool();
+        int maxConcurrency = syncProperties.maxConcurrency();
+        // OkHttp调度器默认单主机最多5个并发请求，这里与"sync"线程池的线程数对齐
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(pool.getMaxRequests() == null ? maxConcurrency * 2 : pool.getMaxRequests());
+        dispatcher.setMaxRequestsPerHost(pool.getMaxRequestsPerHost() == null ? maxConcurrency : pool.getMaxRequestsPerHost());
+        int maxIdleConnections = pool.getMaxIdleConnections() == null ? maxConcurrency * 2 : pool.getMaxIdleConnections();
+        circuitBreaker = new CircuitBreakerInterceptor(syncProperties.getCircuitBreaker());
+        httpClient = new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
+                .connectionPool(new ConnectionPool(maxIdleConnections, pool.getKeepAlive().toMillis(), TimeUnit.MILLISECONDS))
+                .connectTimeout(pool.getConnectTimeout())
+                .readTimeout(pool.getReadTimeout())
+                .writeTimeout(pool.getWriteTimeout())
+                .protocols(List.of(Protocol.HTTP_1_1))
+                .eventListener(reuseListener)
+                // 所有客户端共享同一个熔断拦截器，按端点熔断
+                .addInterceptor(circuitBreaker)
+                .build();
+        statsTask = Flux.interval(pool.getStatsInterval(), Schedulers.single())
+                .subscribe(tick -> logStats());
+    }
+
+    /**
+     * 源文件客户端
+     */
+    public MinioClient source() {
+        return getClient(syncProperties.getSource());
+    }
+
+    /**
+     * 目标文件客户端
+     */
+    public MinioClient destination() {
+        return getClient(syncProperties.getDestination());
+    }
+
+    /**
+     * 根据端点获取客户端，同一端点同一凭证只会构造一次
+     */
+    public MinioClient getClient(SyncProperties.Endpoint endpoint) {
+        return clients.computeIfAbsent(endpoint.getEndpoint() + "@" + endpoint.getAccessKey(), key -> MinioClient.builder()
+                .endpoint(endpoint.getEndpoint())
+                .credentials(endpoint.getAccessKey(), endpoint.getSecretKey())
+                .httpClient(httpClient)
+                .build());
+    }
+
+    /**
+     * 目标文件分片上传客户端
+     */
+    public MultipartMinioClient destinationMultipart() {
+        return getMultipartClient(syncProperties.getDestination());
+    }
+
+    /**
+     * 根据端点获取分片上传客户端，与同步客户端共用同一个OkHttpClient
+     */
+    public MultipartMinioClient getMultipartClient(SyncProperties.Endpoint endpoint) {
+        return multipartClients.computeIfAbsent(endpoint.getEndpoint() + "@" + endpoint.getAccessKey(), key -> new MultipartMinioClient(
+                MinioAsyncClient.builder()
+                        .endpoint(endpoint.getEndpoint())
+                        .credentials(endpoint.getAccessKey(), endpoint.getSecretKey())
+                        .httpClient(httpClient)
+                        .build()));
+    }
+
+    /**
+     * 各主机的连接复用快照
+     */
+    public Map<String, ConnectionReuseListener.ReuseStats> reuseStats() {
+        return reuseListener.snapshot();
+    }
+
+    /**
+     * 各端点的熔断状态
+     */
+    public Map<String, CircuitBreakerInterceptor.State> circuitStates() {
+        return circuitBreaker.states();
+    }
+
+    /**
+     * 输出连接池状态和各主机的连接复用率
+     */
+    public void logStats() {
+        Map<String, ConnectionReuseListener.ReuseStats> snapshot = reuseStats();
+        if (snapshot.isEmpty()) {
+            return;
+        }
+        ConnectionPool connectionPool = httpClient.connectionPool();
+        Dispatcher dispatcher = httpClient.dispatcher();
+        log.info("连接池：总连接{}，空闲连接{}，执行中请求{}，排队请求{}",
+                connectionPool.connectionCount(), connectionPool.idleConnectionCount(),
+                dispatcher.runningCallsCount(), dispatcher.queuedCallsCount());
+        snapshot.forEach((host, stats) -> log.info("连接复用：{} 获取连接{}次，新建连接{}次，复用率{}%",
+                host, stats.acquires(), stats.connects(), String.format("%.2f", stats.reuseRate() * 100)));
+        circuitStates().forEach((endpoint, state) -> {
+            if (state != CircuitBreakerInterceptor.State.CLOSED) {
+                log.warn("端点熔断状态：{} {}", endpoint, state);
+            }
+        });
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (statsTask != null) {
+            statsTask.dispose();
+        }
+        logStats();
+        httpClient.dispatcher().executorService().shutdown();
+        httpClient.connectionPool().evictAll();
+    }
+
+}
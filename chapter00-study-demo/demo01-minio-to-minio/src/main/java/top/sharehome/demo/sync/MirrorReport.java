@@ -0,0 +1,74 @@
+package top.sharehome.demo.sync;
+
+import lombok.Getter;
+
+import java.time.Duration;
+
+/**
+ * 一次镜像删除的汇总报告
+ *
+ * @author AntonyCheng
+ */
+@Getter
+public class MirrorReport {
+
+    private final long startNanos = System.nanoTime();
+
+    /**
+     * 处理的已删除行数
+     */
+    private long rows;
+
+    /**
+     * 删除的目标对象数
+     */
+    private long deleted;
+
+    /**
+     * 仍被其他未删除行引用而保留的路径数
+     */
+    private long live;
+
+    /**
+     * removeObjects请求数
+     */
+    private long requests;
+
+    /**
+     * 累加一个批次的结果
+     */
+    public MirrorReport add(MirrorReport batch) {
+        rows += batch.rows;
+        deleted += batch.deleted;
+        live += batch.live;
+        requests += batch.requests;
+        return this;
+    }
+
+    void rows(long rows) {
+        this.rows += rows;
+    }
+
+    void deleted(long deleted) {
+        this.deleted += deleted;
+    }
+
+    void requested() {
+        requests++;
+    }
+
+    void live(long live) {
+        this.live += live;
+    }
+
+    public Duration elapsed() {
+        return Duration.ofNanos(System.nanoTime() - startNanos);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("处理已删除行%d个，删除目标对象%d个（%d次请求），仍被引用保留%d个，耗时%ds",
+                rows, deleted, requests, live, elapsed().toSeconds());
+    }
+
+}
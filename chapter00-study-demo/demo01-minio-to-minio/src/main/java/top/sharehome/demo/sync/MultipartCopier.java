@@ -0,0 +1,232 @@
+package top.sharehome.demo.sync;
+
+import io.minio.GetObjectArgs;
+import io.minio.GetObjectResponse;
+import io.minio.MinioClient;
+import io.minio.ObjectWriteResponse;
+import io.minio.errors.ErrorResponseException;
+import io.minio.messages.Part;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import top.sharehome.demo.config.SyncProperties;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 大对象分片复制器
+ * 按分片把源对象切成多个范围GET（GetObjectArgs.offset/length）并行下载，每个分片下载完立即作为分片上传到目标端，
+ * 单个对象同时在途的分片数不超过partParallelism，每个分片都从ByteBudget申请预算，堆内存有上限，
+ * 即使只剩少数几个超大文件也能跑满带宽；
+ * 每个范围GET都带上源对象的ETag（If-Match），源对象在复制期间或两次尝试之间被覆盖时不会把两个版本的分片拼在一起
+ *
+ * @author AntonyCheng
+ */
+@Component
+@Slf4j
+public class MultipartCopier {
+
+    @Resource
+    private SyncProperties syncProperties;
+
+    @Resource
+    private MinioClientRegistry minioClientRegistry;
+
+    @Resource
+    private ByteBudget byteBudget;
+
+    @Resource
+    private SyncMetrics syncMetrics;
+
+    @Resource
+    private BandwidthLimiter bandwidthLimiter;
+
+    @Resource
+    private ObjectVerifier objectVerifier;
+
+    private Scheduler scheduler;
+
+    @PostConstruct
+    public void init() {
+        SyncProperties.Lanes lanes = syncProperties.getLanes();
+        if (syncProperties.getExecution().getMode() == ExecutionMode.VIRTUAL) {
+            // 同时在途的分片数已由每个对象的partParallelism和大对象通道并发数限制，每个分片一个虚拟线程即可
+            scheduler = Schedulers.fromExecutorService(Executors.newVirtualThreadPerTaskExecutor(), "sync-part-virtual");
+            return;
+        }
+        // 分片下载是阻塞的，单独放在"sync-part"线程池上，线程上限为大对象并发数*单对象分片并行数
+        scheduler = Schedulers.newBoundedElastic(Math.max(1, lanes.getLargeConcurrency() * lanes.getPartParallelism()), Integer.MAX_VALUE, "sync-part");
+    }
+
+    /**
+     * 分片复制对象，要求源对象大小已知，目标对象沿用源对象的Content-Type
+     * 失败时不会放弃分片上传，进行中的上传和已上传的分片保存在任务上，重试时只复制缺少的分片；
+     * 最终失败时由调用方调用abort放弃上传
+     *
+     * @param task     同步任务
+     * @param partSize 分片大小
+     * @return 复制的源对象元数据
+     */
+    public ObjectStat copy(SyncTask task, long partSize) throws Exception {
+        ObjectStat source = task.getSource();
+        MultipartMinioClient destClient = minioClientRegistry.destinationMultipart();
+        String bucketName = task.getBucketName();
+        String objectName = task.getObjectName();
+        int partCount = (int) Math.max(1, (source.size() + partSize - 1) / partSize);
+        MultipartUpload upload = task.getUpload();
+        if (upload == null || upload.partSize() != partSize) {
+            abort(task);
+            upload = new MultipartUpload(destClient.createMultipartUpload(bucketName, objectName, source.contentType(), source.etag()), partSize);
+            task.setUpload(upload);
+        } else {
+            log.info("继续分片上传：{}，已上传{}/{}个分片", task.getPath(), upload.parts().size(), partCount);
+        }
+        MultipartUpload current = upload;
+        try {
+            Flux.range(1, partCount)
+                    .filter(partNumber -> !current.isUploaded(partNumber))
+                    // 同时最多partParallelism个分片在下载或上传，每个分片上传成功立即记录，失败不影响已完成的分片
+                    .flatMap(partNumber -> {
+                        long offset = (partNumber - 1) * partSize;
+                        int length = (int) Math.min(partSize, source.size() - offset);
+                        return copyPart(task, source.etag(), current.uploadId(), partNumber, offset, length)
+                                .doOnNext(part -> current.parts().put(partNumber, part));
+                    }, syncProperties.getLanes().getPartParallelism())
+                    .then()
+                    .block();
+            Part[] parts = current.sortedParts();
+            ObjectWriteResponse response = destClient.completeMultipartUpload(bucketName, objectName, current.uploadId(), parts);
+            task.setUpload(null);
+            // 分片ETag在上传时已经逐个校验过，这里比较合并后的ETag
+            if (objectVerifier.isEnabled()) {
+                objectVerifier.verify(task.getPath(), objectVerifier.multipartDigest(source.size(), parts), source.etag(), response.etag());
+            }
+            return source;
+        } catch (Exception e) {
+            // 源对象已被覆盖：已上传的分片属于旧版本，放弃上传并清空源对象元数据，重试时重新查询
+            if (isPreconditionFailed(e)) {
+                abort(task);
+                task.setSource(null);
+                throw new SourceChangedException(task.getPath(), e);
+            }
+            // 上传已经被目标端清理，下次重试重新开始
+            if (isNoSuchUpload(e)) {
+                task.setUpload(null);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 放弃任务上进行中的分片上传，清理目标端已上传的分片
+     */
+    public void abort(SyncTask task) {
+        MultipartUpload upload = task.getUpload();
+        if (upload == null) {
+            return;
+        }
+        task.setUpload(null);
+        try {
+            minioClientRegistry.destinationMultipart().abortMultipartUpload(task.getBucketName(), task.getObjectName(), upload.uploadId());
+        } catch (Exception e) {
+            log.warn("放弃分片上传失败：{}，uploadId={}", task.getPath(), upload.uploadId(), e);
+        }
+    }
+
+    private static boolean isPreconditionFailed(Throwable throwable) {
+        for (Throwable t = throwable; t != null; t = t.getCause()) {
+            if (t instanceof ErrorResponseException e
+                    && ("PreconditionFailed".equals(e.errorResponse().code()) || (e.response() != null && e.response().code() == 412))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isNoSuchUpload(Throwable throwable) {
+        for (Throwable t = throwable; t != null; t = t.getCause()) {
+            if (t instanceof ErrorResponseException e && "NoSuchUpload".equals(e.errorResponse().code())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 复制单个分片：先申请字节预算，再范围下载（源对象ETag不是etag时返回412），下载完成后上传，上传结束归还预算
+     */
+    private Mono<Part> copyPart(SyncTask task, String etag, String uploadId, int partNumber, long offset, int length) {
+        MinioClient srcClient = minioClientRegistry.source();
+        MultipartMinioClient destClient = minioClientRegistry.destinationMultipart();
+        return Mono.using(
+                () -> byteBudget.acquire(length),
+                permit -> Mono.fromCallable(() -> syncMetrics.time(SyncMetrics.STAGE_GET, () -> {
+                            try (GetObjectResponse stream = srcClient.getObject(GetObjectArgs.builder()
+                                    .bucket(task.getBucketName())
+                                    .object(task.getObjectName())
+                                    .matchETag(etag)
+                                    .offset(offset)
+                                    .length((long) length)
+                                    .build())) {
+                                byte[] data = bandwidthLimiter.throttle(stream, task.getBucketName()).readNBytes(length);
+                                if (data.length != length) {
+                                    throw new EOFException("源对象长度不足：" + task.getPath() + "，分片" + partNumber);
+                                }
+                                return data;
+                            }
+                        }))
+                        .flatMap(data -> {
+                            long start = System.nanoTime();
+                            Mono<Part> upload = Mono.fromFuture(() -> {
+                                        try {
+                                            return destClient.uploadPart(task.getBucketName(), task.getObjectName(), uploadId, partNumber, data, length);
+                                        } catch (Exception e) {
+                                            throw new IllegalStateException(e);
+                                        }
+                                    })
+                                    .doOnSuccess(part -> syncMetrics.stage(SyncMetrics.STAGE_PUT).record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+                            if (!objectVerifier.isEnabled()) {
+                                return upload;
+                            }
+                            // 上传和计算分片MD5同时进行，两者都完成后比较分片ETag，不一致的分片不会记为已上传
+                            return Mono.zip(upload, objectVerifier.partMd5(data, length))
+                                    .<Part>handle((tuple, sink) -> {
+                                        try {
+                                            objectVerifier.verifyPart(task, tuple.getT1(), tuple.getT2());
+                                            sink.next(tuple.getT1());
+                                        } catch (ObjectVerifier.ChecksumMismatchException e) {
+                                            sink.error(e);
+                                        }
+                                    });
+                        }),
+                ByteBudget.Permit::close)
+                // 申请预算和范围下载都是阻塞的，整体订阅在"sync-part"线程池上
+                .subscribeOn(scheduler);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        scheduler.dispose();
+    }
+
+    /**
+     * 分片复制期间源对象被覆盖（范围GET的If-Match不满足），属于暂时性错误，重试时重新查询源对象后从头上传
+     */
+    public static class SourceChangedException extends IOException {
+
+        public SourceChangedException(String path, Throwable cause) {
+            super("源对象在复制期间被修改：" + path, cause);
+        }
+
+    }
+
+}
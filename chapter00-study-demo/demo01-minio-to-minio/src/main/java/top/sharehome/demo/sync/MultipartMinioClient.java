@@ -0,0 +1,67 @@
+package top.sharehome.demo.sync;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Multimap;
+import io.minio.MinioAsyncClient;
+import io.minio.ObjectWriteResponse;
+import io.minio.messages.Part;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 分片上传客户端
+ * MinIO SDK的分片上传接口（createMultipartUpload/uploadPart/completeMultipartUpload）是protected的，
+ * 这里继承MinioAsyncClient把它们暴露出来，以便多个分片并行上传
+ *
+ * @author AntonyCheng
+ */
+public class MultipartMinioClient extends MinioAsyncClient {
+
+    public MultipartMinioClient(MinioAsyncClient client) {
+        super(client);
+    }
+
+    /**
+     * 初始化分片上传
+     *
+     * @param sourceEtag 源对象ETag，记录在目标对象的用户元数据中，可能为空
+     * @return uploadId
+     */
+    public String createMultipartUpload(String bucketName, String objectName, String contentType, String sourceEtag) throws Exception {
+        Multimap<String, String> headers = HashMultimap.create();
+        if (StringUtils.isNotBlank(contentType)) {
+            headers.put("Content-Type", contentType);
+        }
+        if (StringUtils.isNotBlank(sourceEtag)) {
+            headers.put("x-amz-meta-" + ObjectStat.SOURCE_ETAG_METADATA, sourceEtag);
+        }
+        return createMultipartUploadAsync(bucketName, null, objectName, headers, null).get().result().uploadId();
+    }
+
+    /**
+     * 异步上传一个分片
+     *
+     * @param data   分片数据
+     * @param length 分片长度
+     */
+    public CompletableFuture<Part> uploadPart(String bucketName, String objectName, String uploadId, int partNumber, byte[] data, int length) throws Exception {
+        return uploadPartAsync(bucketName, null, objectName, data, length, uploadId, partNumber, null, null)
+                .thenApply(response -> new Part(partNumber, response.etag()));
+    }
+
+    /**
+     * 合并分片，分片必须按分片号升序
+     */
+    public ObjectWriteResponse completeMultipartUpload(String bucketName, String objectName, String uploadId, Part[] parts) throws Exception {
+        return completeMultipartUploadAsync(bucketName, null, objectName, uploadId, parts, null, null).get();
+    }
+
+    /**
+     * 放弃分片上传，清理已上传的分片
+     */
+    public void abortMultipartUpload(String bucketName, String objectName, String uploadId) throws Exception {
+        abortMultipartUploadAsync(bucketName, null, objectName, uploadId, null, null).get();
+    }
+
+}
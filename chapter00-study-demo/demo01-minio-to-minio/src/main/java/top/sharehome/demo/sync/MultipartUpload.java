@@ -0,0 +1,40 @@
+package top.sharehome.demo.sync;
+
+import io.minio.messages.Part;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 进行中的分片上传
+ * 挂在同步任务上，重试时复用同一个uploadId，已经上传成功的分片不会重新下载
+ *
+ * @param uploadId 分片上传ID
+ * @param partSize 分片大小，重试时分片大小变化则不能复用
+ * @param parts    已上传的分片：分片号 -> 分片
+ * @author AntonyCheng
+ */
+public record MultipartUpload(String uploadId, long partSize, Map<Integer, Part> parts) {
+
+    public MultipartUpload(String uploadId, long partSize) {
+        this(uploadId, partSize, new ConcurrentHashMap<>());
+    }
+
+    /**
+     * 分片是否已经上传
+     */
+    public boolean isUploaded(int partNumber) {
+        return parts.containsKey(partNumber);
+    }
+
+    /**
+     * 按分片号升序排列的已上传分片，用于合并
+     */
+    public Part[] sortedParts() {
+        return parts.values().stream()
+                .sorted(Comparator.comparingInt(Part::partNumber))
+                .toArray(Part[]::new);
+    }
+
+}
@@ -0,0 +1,438 @@
+package top.sharehome.demo.sync;
+
+import cn.hutool.core.io.IoUtil;
+import io.minio.*;
+import io.minio.errors.ErrorResponseException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import top.sharehome.demo.config.SyncProperties;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 对象复制器
+ * 负责把源端的单个对象复制到目标端，复制方式由sync.copy.mode决定，配置了副本时改为扇出复制
+ *
+ * @author AntonyCheng
+ */
+@Component
+@Slf4j
+public class ObjectCopier {
+
+    private static final long MIB = 1024L * 1024L;
+
+    /**
+     * 表示目标端整体不支持服务端复制的错误码，遇到后回退到流式复制，本次运行不再尝试服务端复制，其他错误照常抛出；
+     * 源对象已经查询过存在，目标端返回NoSuchKey/NoSuchBucket说明它看不到源桶，同样按拒绝处理
+     */
+    private static final Set<String> SERVER_SIDE_UNSUPPORTED = Set.of("AccessDenied", "NotImplemented", "InvalidRequest", "NoSuchKey", "NoSuchBucket");
+
+    @Resource
+    private SyncProperties syncProperties;
+
+    @Resource
+    private MinioClientRegistry minioClientRegistry;
+
+    @Resource
+    private ByteBudget byteBudget;
+
+    @Resource
+    private MultipartCopier multipartCopier;
+
+    @Resource
+    private SyncMetrics syncMetrics;
+
+    @Resource
+    private BandwidthLimiter bandwidthLimiter;
+
+    @Resource
+    private ObjectVerifier objectVerifier;
+
+    /**
+     * 服务端复制被目标端整体拒绝后置为false
+     */
+    private final AtomicBoolean serverSideAvailable = new AtomicBoolean(true);
+
+    /**
+     * 扇出复制的读取和上传线程，没有副本时为null
+     */
+    private Scheduler fanOutScheduler;
+
+    @PostConstruct
+    public void init() {
+        int destinations = syncProperties.destinations().size();
+        if (destinations < 2) {
+            return;
+        }
+        if (syncProperties.getExecution().getMode() == ExecutionMode.VIRTUAL) {
+            fanOutScheduler = Schedulers.fromExecutorService(Executors.newVirtualThreadPerTaskExecutor(), "sync-fan-out-virtual");
+        } else {
+            // 每个进行中的对象一个读取线程，每个目标端一个上传线程
+            fanOutScheduler = Schedulers.newBoundedElastic(syncProperties.maxConcurrency() * (destinations + 1), Integer.MAX_VALUE, "sync-fan-out");
+        }
+    }
+
+    /**
+     * 复制对象，源端和目标端使用相同的桶名称和对象名称
+     *
+     * @param task 同步任务
+     * @return 复制的源对象元数据
+     */
+    public ObjectStat copy(SyncTask task) throws Exception {
+        // 配置了副本时源对象只读取一次，同时上传到所有目标端
+        if (fanOutScheduler != null) {
+            return fanOutCopy(task);
+        }
+        String bucketName = task.getBucketName();
+        String objectName = task.getObjectName();
+        MinioClient srcClient = minioClientRegistry.source();
+        MinioClient destClient = minioClientRegistry.destination();
+        if (serverSideEnabled()) {
+            try {
+                return serverSideCopy(srcClient, destClient, bucketName, objectName);
+            } catch (ErrorResponseException e) {
+                // 只有服务端复制被拒绝时回退到流式复制，限流、5xx等暂时性错误照常抛出，交给重试
+                String code = e.errorResponse().code();
+                if (!SERVER_SIDE_UNSUPPORTED.contains(code)) {
+                    throw e;
+                }
+                if (serverSideAvailable.compareAndSet(true, false)) {
+                    log.warn("目标端拒绝服务端复制（{}），本次运行回退到流式复制", code);
+                }
+            }
+        }
+        // 大对象通道：分片并行上传
+        if (task.getLane() == SyncTask.Lane.LARGE && task.getSource() != null) {
+            long partSize = partSize(task.getSource().size(), syncProperties.getLanes().getLargePartSize().toBytes());
+            return multipartCopier.copy(task, partSize);
+        }
+        if (syncProperties.getCopy().getMode() == CopyMode.BUFFERED) {
+            return bufferedCopy(srcClient, destClient, bucketName, objectName);
+        }
+        return streamingCopy(srcClient, destClient, task.getPath(), bucketName, objectName);
+    }
+
+    /**
+     * 放弃任务上未完成的复制（进行中的分片上传），任务最终失败时调用
+     */
+    public void abandon(SyncTask task) {
+        multipartCopier.abort(task);
+    }
+
+    /**
+     * 查询源对象元数据，对象不存在返回null
+     */
+    public ObjectStat statSource(String bucketName, String objectName) throws Exception {
+        return stat(minioClientRegistry.source(), bucketName, objectName);
+    }
+
+    /**
+     * 是否所有目标端（包括副本）都已有与源对象一致的对象，已经一致的目标端记入任务，扇出复制时跳过
+     *
+     * @param task   同步任务
+     * @param source 源对象元数据
+     */
+    public boolean replicated(SyncTask task, ObjectStat source) throws Exception {
+        boolean all = true;
+        for (SyncProperties.Endpoint endpoint : syncProperties.destinations()) {
+            if (task.getReplicated().contains(endpoint.id())) {
+                continue;
+            }
+            if (source.matches(stat(minioClientRegistry.getClient(endpoint), task.getBucketName(), task.getObjectName()))) {
+                task.getReplicated().add(endpoint.id());
+            } else {
+                all = false;
+            }
+        }
+        return all;
+    }
+
+    private ObjectStat stat(MinioClient client, String bucketName, String objectName) throws Exception {
+        try {
+            StatObjectResponse response = syncMetrics.time(SyncMetrics.STAGE_STAT, () -> client.statObject(StatObjectArgs.builder()
+                    .bucket(bucketName)
+                    .object(objectName)
+                    .build()));
+            return new ObjectStat(response.etag(), response.size(), response.userMetadata().get(ObjectStat.SOURCE_ETAG_METADATA), response.contentType());
+        } catch (ErrorResponseException e) {
+            if ("NoSuchKey".equals(e.errorResponse().code()) || "NoSuchObject".equals(e.errorResponse().code())) {
+                return null;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 服务端复制：目标端直接从源桶读取数据，字节不经过JVM，
+     * 超过单次copyObject上限（5GiB）的对象使用composeObject按分片复制
+     */
+    private ObjectStat serverSideCopy(MinioClient srcClient, MinioClient destClient, String bucketName, String objectName) throws Exception {
+        ObjectStat stat = stat(srcClient, bucketName, objectName);
+        if (stat == null) {
+            throw new IllegalStateException("源对象不存在：" + bucketName + "/" + objectName);
+        }
+        return syncMetrics.time(SyncMetrics.STAGE_SERVER_SIDE_COPY, () -> {
+            if (stat.size() > ObjectWriteArgs.MAX_PART_SIZE) {
+                // 按分片复制后的ETag与源对象不同，记录源对象ETag；copyObject保留源对象的ETag和元数据
+                destClient.composeObject(ComposeObjectArgs.builder()
+                        .bucket(bucketName)
+                        .object(objectName)
+                        .userMetadata(sourceEtagMetadata(stat.etag()))
+                        .sources(List.of(ComposeSource.builder().bucket(bucketName).object(objectName).build()))
+                        .build());
+            } else {
+                destClient.copyObject(CopyObjectArgs.builder()
+                        .bucket(bucketName)
+                        .object(objectName)
+                        .source(CopySource.builder().bucket(bucketName).object(objectName).build())
+                        .build());
+            }
+            return stat;
+        });
+    }
+
+    /**
+     * 流式复制：源端输入流直接交给putObject，MinIO按分片读取上传，
+     * 单个传输占用的堆内存不超过一个分片，与对象大小无关
+     */
+    private ObjectStat streamingCopy(MinioClient srcClient, MinioClient destClient, String path, String bucketName, String objectName) throws Exception {
+        GetObjectArgs srcArgs = GetObjectArgs.builder()
+                .bucket(bucketName)
+                .object(objectName)
+                .build();
+        // GET阶段只统计到拿到响应头（首字节），读取响应体的时间计入PUT阶段
+        try (GetObjectResponse stream = syncMetrics.time(SyncMetrics.STAGE_GET, () -> srcClient.getObject(srcArgs))) {
+            // 对象长度直接取GET响应头，省去一次statObject请求；拿不到长度时按分片大小走分片上传
+            long objectSize = contentLength(stream);
+            long partSize = partSize(objectSize, syncProperties.getCopy().getPartSize().toBytes());
+            InputStream source = bandwidthLimiter.throttle(stream, bucketName);
+            // 开启校验时边传输边计算摘要
+            StreamDigest digest = objectVerifier.isEnabled() ? objectVerifier.newDigest(partSize) : null;
+            if (digest != null) {
+                source = objectVerifier.digesting(source, digest);
+            }
+            String sourceEtag = stream.headers().get("ETag");
+            PutObjectArgs.Builder putObjectArgs = PutObjectArgs.builder()
+                    .bucket(bucketName)
+                    .object(objectName)
+                    .userMetadata(sourceEtagMetadata(sourceEtag))
+                    .stream(source, objectSize, partSize);
+            String contentType = stream.headers().get("Content-Type");
+            if (StringUtils.isNotBlank(contentType)) {
+                putObjectArgs.contentType(contentType);
+            }
+            // 上传时最多缓冲一个分片
+            ObjectWriteResponse response;
+            try (ByteBudget.Permit ignored = byteBudget.acquire(objectSize < 0 ? partSize : Math.min(objectSize, partSize))) {
+                response = syncMetrics.time(SyncMetrics.STAGE_PUT, () -> destClient.putObject(putObjectArgs.build()));
+            }
+            if (digest != null) {
+                objectVerifier.verify(path, digest.finish(), sourceEtag, response.etag());
+            }
+            return new ObjectStat(sourceEtag, objectSize);
+        }
+    }
+
+    /**
+     * 扇出复制：源对象只读取一次，按块读出后通过publish多播给每个目标端的putObject，
+     * publish按最慢的订阅者向上游请求，每个目标端各自背压，读取但未被取走的块数有上限；
+     * 各目标端成功（开启校验时校验通过）后记入任务，有目标端失败时抛出异常，重试时只上传还没有成功的目标端
+     */
+    private ObjectStat fanOutCopy(SyncTask task) throws Exception {
+        String bucketName = task.getBucketName();
+        String objectName = task.getObjectName();
+        List<SyncProperties.Endpoint> pending = syncProperties.destinations().stream()
+                .filter(endpoint -> !task.getReplicated().contains(endpoint.id()))
+                .toList();
+        if (pending.isEmpty()) {
+            return task.getSource() != null ? task.getSource() : statSource(bucketName, objectName);
+        }
+        SyncProperties.FanOut fanOut = syncProperties.getFanOut();
+        int chunkSize = (int) fanOut.getChunkSize().toBytes();
+        GetObjectArgs srcArgs = GetObjectArgs.builder()
+                .bucket(bucketName)
+                .object(objectName)
+                .build();
+        try (GetObjectResponse stream = syncMetrics.time(SyncMetrics.STAGE_GET, () -> minioClientRegistry.source().getObject(srcArgs))) {
+            long objectSize = contentLength(stream);
+            long partSize = partSize(objectSize, syncProperties.getCopy().getPartSize().toBytes());
+            String sourceEtag = stream.headers().get("ETag");
+            String contentType = stream.headers().get("Content-Type");
+            StreamDigest digest = objectVerifier.isEnabled() ? objectVerifier.newDigest(partSize) : null;
+            InputStream throttled = bandwidthLimiter.throttle(stream, bucketName);
+            InputStream source = digest != null ? objectVerifier.digesting(throttled, digest) : throttled;
+            Flux<byte[]> chunks = Flux.<byte[]>generate(sink -> {
+                        try {
+                            byte[] chunk = source.readNBytes(chunkSize);
+                            if (chunk.length == 0) {
+                                sink.complete();
+                            } else {
+                                sink.next(chunk);
+                            }
+                        } catch (IOException e) {
+                            sink.error(e);
+                        }
+                    })
+                    .subscribeOn(fanOutScheduler)
+                    .publish(fanOut.getBufferChunks())
+                    // 所有目标端都订阅后才开始读取源对象
+                    .autoConnect(pending.size());
+            List<FanOutResult> results;
+            // publish缓冲的块、每个目标端toStream预取的两个块，再加上每个目标端putObject攒一个分片的缓冲区
+            long partBuffer = objectSize < 0 ? partSize : Math.min(objectSize, partSize);
+            long budget = (long) chunkSize * (fanOut.getBufferChunks() + pending.size() * 2L) + pending.size() * partBuffer;
+            try (ByteBudget.Permit ignored = byteBudget.acquire(budget)) {
+                // toStream立即订阅，失败的目标端关闭输入流即取消订阅，不会拖住其他目标端
+                List<ChunkedInputStream> inputs = pending.stream().map(endpoint -> new ChunkedInputStream(chunks.toStream(2))).toList();
+                results = Flux.range(0, pending.size())
+                        .flatMap(i -> Mono.fromCallable(() -> {
+                                    try (ChunkedInputStream input = inputs.get(i)) {
+                                        PutObjectArgs.Builder putObjectArgs = PutObjectArgs.builder()
+                                                .bucket(bucketName)
+                                                .object(objectName)
+                                                .userMetadata(sourceEtagMetadata(sourceEtag))
+                                                .stream(input, objectSize, partSize);
+                                        if (StringUtils.isNotBlank(contentType)) {
+                                            putObjectArgs.contentType(contentType);
+                                        }
+                                        MinioClient destClient = minioClientRegistry.getClient(pending.get(i));
+                                        return new FanOutResult(pending.get(i), syncMetrics.time(SyncMetrics.STAGE_PUT, () -> destClient.putObject(putObjectArgs.build())), null);
+                                    }
+                                })
+                                .subscribeOn(fanOutScheduler)
+                                .onErrorResume(throwable -> Mono.just(new FanOutResult(pending.get(i), null, throwable))), pending.size())
+                        .collectList()
+                        .block();
+            }
+            // 有目标端成功说明源对象已经读完，摘要只计算一次，各目标端分别校验
+            CopyDigest copyDigest = digest != null && results.stream().anyMatch(result -> result.error() == null) ? digest.finish() : null;
+            Exception failure = null;
+            for (FanOutResult result : results) {
+                Throwable error = result.error();
+                if (error == null && copyDigest != null) {
+                    try {
+                        objectVerifier.verify(task.getPath() + "@" + result.endpoint().id(), copyDigest, sourceEtag, result.response().etag());
+                    } catch (ObjectVerifier.ChecksumMismatchException e) {
+                        error = e;
+                    }
+                }
+                if (error == null) {
+                    task.getReplicated().add(result.endpoint().id());
+                } else {
+                    log.warn("扇出复制失败：{} -> {}，{}", task.getPath(), result.endpoint().id(), error.toString());
+                    if (failure == null) {
+                        failure = error instanceof Exception e ? e : new IOException(error);
+                    }
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            return new ObjectStat(sourceEtag, objectSize);
+        }
+    }
+
+    /**
+     * 一个目标端的扇出上传结果，response和error有且只有一个不为null
+     */
+    private record FanOutResult(SyncProperties.Endpoint endpoint, ObjectWriteResponse response, Throwable error) {
+    }
+
+    /**
+     * 整体缓冲：对象在堆中会有两份（ByteArrayOutputStream和toByteArray），仅保留用于对比
+     */
+    private ObjectStat bufferedCopy(MinioClient srcClient, MinioClient destClient, String bucketName, String objectName) throws Exception {
+        //构造源文件参数
+        GetObjectArgs srcArgs = GetObjectArgs.builder()
+                .bucket(bucketName)
+                .object(objectName)
+                .build();
+        //获取流数据
+        GetObjectResponse response = srcClient.getObject(srcArgs);
+        String etag = response.headers().get("ETag");
+        // 对象在堆中有两份，按两倍对象大小申请预算
+        try (ByteBudget.Permit ignored = byteBudget.acquire(contentLength(response) * 2)) {
+            InputStream stream = bandwidthLimiter.throttle(response, bucketName);
+            ByteArrayOutputStream bs = new ByteArrayOutputStream();
+            IoUtil.copy(stream, bs);
+            stream.close();
+            stream = new ByteArrayInputStream(bs.toByteArray());
+            long objectSize = stream.available();
+            //构造发送数据参数
+            PutObjectArgs putObjectArgs = PutObjectArgs.builder()
+                    .bucket(bucketName)
+                    .object(objectName)
+                    .userMetadata(sourceEtagMetadata(etag))
+                    .stream(stream, objectSize, -1)
+                    .build();
+            //发送数据
+            destClient.putObject(putObjectArgs);
+            stream.close();
+            return new ObjectStat(etag, objectSize);
+        }
+    }
+
+    /**
+     * 计算分片大小：默认使用配置值，对象过大导致分片数超过MinIO上限（10000）时按MiB向上调整
+     *
+     * @param objectSize 对象大小，-1表示未知
+     * @param preferred  配置的分片大小
+     */
+    static long partSize(long objectSize, long preferred) {
+        long partSize = Math.max(preferred, ObjectWriteArgs.MIN_MULTIPART_SIZE);
+        if (objectSize > 0) {
+            long minPartSize = (objectSize + ObjectWriteArgs.MAX_MULTIPART_COUNT - 1) / ObjectWriteArgs.MAX_MULTIPART_COUNT;
+            if (minPartSize > partSize) {
+                partSize = (minPartSize + MIB - 1) / MIB * MIB;
+            }
+        }
+        return Math.min(partSize, ObjectWriteArgs.MAX_PART_SIZE);
+    }
+
+    /**
+     * 是否使用服务端复制：配置为ALWAYS且本次运行还没有被目标端整体拒绝
+     */
+    private boolean serverSideEnabled() {
+        return syncProperties.getCopy().getServerSide() == ServerSideCopy.ALWAYS && serverSideAvailable.get();
+    }
+
+    /**
+     * 写入目标对象的源对象ETag用户元数据，源对象ETag未知时为空
+     */
+    private static Map<String, String> sourceEtagMetadata(String sourceEtag) {
+        String etag = StringUtils.strip(sourceEtag, "\"");
+        return StringUtils.isBlank(etag) ? Map.of() : Map.of(ObjectStat.SOURCE_ETAG_METADATA, etag);
+    }
+
+    private static long contentLength(GetObjectResponse response) {
+        String contentLength = response.headers().get("Content-Length");
+        if (StringUtils.isNumeric(contentLength)) {
+            return Long.parseLong(contentLength);
+        }
+        return -1;
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (fanOutScheduler != null) {
+            fanOutScheduler.dispose();
+        }
+    }
+
+}
@@ -0,0 +1,138 @@
+package top.sharehome.demo.sync;
+
+/**
+ * 数据库路径解析结果，路径形式为：/桶名称/文件路径.../文件本体
+ * 一次遍历完成拆分和校验，只在校验通过后截取桶名称和对象名称两个字符串；
+ * 不符合S3命名规则的路径直接拒绝，不再退回默认桶名称去复制一个不存在的对象
+ *
+ * @param bucketName 桶名称
+ * @param objectName 对象名称
+ * @author AntonyCheng
+ */
+public record ObjectPath(String bucketName, String objectName) {
+
+    /**
+     * 对象名称最大字节数（UTF-8）
+     */
+    private static final int MAX_OBJECT_NAME_BYTES = 1024;
+
+    /**
+     * 解析路径
+     *
+     * @param path 数据库中的文件保存路径
+     * @throws InvalidPathException 路径不合法时抛出，异常信息为原因
+     */
+    public static ObjectPath parse(String path) {
+        if (path == null || path.isEmpty()) {
+            throw new InvalidPathException("路径为空");
+        }
+        int length = path.length();
+        if (path.charAt(0) != '/') {
+            throw new InvalidPathException("路径不以/开头");
+        }
+        int slash = scanBucketName(path, 1);
+        if (slash == length || slash == length - 1) {
+            throw new InvalidPathException("缺少对象名称");
+        }
+        checkBucketName(path, 1, slash);
+        // 对象名称：不能有控制字符和空的、.、..路径段（也就排除了以/结尾的目录），UTF-8编码后不超过1024字节
+        int bytes = 0;
+        int segmentStart = slash + 1;
+        for (int i = segmentStart; i < length; i++) {
+            char c = path.charAt(i);
+            if (c < 0x20 || c == 0x7F) {
+                throw new InvalidPathException("对象名称包含控制字符");
+            }
+            // 代理对两个char共4字节
+            bytes += c < 0x80 ? 1 : c < 0x800 || Character.isSurrogate(c) ? 2 : 3;
+            if (c == '/') {
+                checkSegment(path, segmentStart, i);
+                segmentStart = i + 1;
+            }
+        }
+        checkSegment(path, segmentStart, length);
+        if (bytes > MAX_OBJECT_NAME_BYTES) {
+            throw new InvalidPathException("对象名称超过" + MAX_OBJECT_NAME_BYTES + "字节");
+        }
+        return new ObjectPath(path.substring(1, slash), path.substring(slash + 1));
+    }
+
+    /**
+     * 校验单独的桶名称，规则与路径中的桶名称相同
+     *
+     * @param bucketName 桶名称
+     * @throws InvalidPathException 桶名称不合法时抛出，异常信息为原因
+     */
+    public static void validateBucketName(String bucketName) {
+        if (bucketName == null || bucketName.isEmpty()) {
+            throw new InvalidPathException("桶名称为空");
+        }
+        int end = scanBucketName(bucketName, 0);
+        if (end != bucketName.length()) {
+            throw new InvalidPathException("桶名称包含非法字符");
+        }
+        checkBucketName(bucketName, 0, end);
+    }
+
+    /**
+     * 从from开始检查桶名称的字符：小写字母、数字、.和-，不能有连续的.，遇到/或末尾停止
+     *
+     * @return 第一个/的位置，没有/时为字符串长度
+     */
+    private static int scanBucketName(String s, int from) {
+        int length = s.length();
+        for (int i = from; i < length; i++) {
+            char c = s.charAt(i);
+            if (c == '/') {
+                return i;
+            }
+            if (!isLowerAlphanumeric(c) && c != '-' && c != '.') {
+                throw new InvalidPathException("桶名称包含非法字符");
+            }
+            if (c == '.' && i > from && s.charAt(i - 1) == '.') {
+                throw new InvalidPathException("桶名称包含连续的.");
+            }
+        }
+        return length;
+    }
+
+    /**
+     * 桶名称3~63个字符，以字母或数字开头和结尾
+     */
+    private static void checkBucketName(String s, int from, int to) {
+        int length = to - from;
+        if (length < 3 || length > 63) {
+            throw new InvalidPathException("桶名称长度不在3~63之间");
+        }
+        if (!isLowerAlphanumeric(s.charAt(from)) || !isLowerAlphanumeric(s.charAt(to - 1))) {
+            throw new InvalidPathException("桶名称必须以字母或数字开头和结尾");
+        }
+    }
+
+    private static void checkSegment(String path, int from, int to) {
+        int length = to - from;
+        if (length == 0) {
+            throw new InvalidPathException("对象名称包含空的路径段");
+        }
+        if (length <= 2 && path.charAt(from) == '.' && (length == 1 || path.charAt(from + 1) == '.')) {
+            throw new InvalidPathException("对象名称包含.或..路径段");
+        }
+    }
+
+    private static boolean isLowerAlphanumeric(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9');
+    }
+
+    /**
+     * 路径不合法，异常信息为原因
+     * 非法行可能成批出现，只用来传递原因，不填充异常栈
+     */
+    public static class InvalidPathException extends RuntimeException {
+
+        public InvalidPathException(String reason) {
+            super(reason, null, false, false);
+        }
+
+    }
+
+}
@@ -0,0 +1,44 @@
+package top.sharehome.demo.sync;
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.Objects;
+
+/**
+ * 对象元数据（ETag和大小），用于判断源端和目标端对象是否一致
+ * 分片上传的对象ETag形如"md5-分片数"，与单次上传的源对象ETag永远不相等，
+ * 所以复制时把源对象ETag记在目标对象的用户元数据中（x-amz-meta-source-etag），比较时一并使用
+ *
+ * @param etag        ETag（不带引号）
+ * @param size        对象大小，-1表示未知
+ * @param sourceEtag  复制时记录的源对象ETag（目标端对象才有，可能为null）
+ * @param contentType 对象的Content-Type，只有查询得到的元数据才有，可能为null，不参与比较
+ * @author AntonyCheng
+ */
+public record ObjectStat(String etag, long size, String sourceEtag, String contentType) {
+
+    /**
+     * 记录源对象ETag的用户元数据名称（不带x-amz-meta-前缀）
+     */
+    public static final String SOURCE_ETAG_METADATA = "source-etag";
+
+    public ObjectStat {
+        etag = StringUtils.strip(etag, "\"");
+        sourceEtag = StringUtils.strip(sourceEtag, "\"");
+    }
+
+    public ObjectStat(String etag, long size) {
+        this(etag, size, null, null);
+    }
+
+    /**
+     * 大小相同，且ETag相同或other记录的源对象ETag与本对象的ETag相同，才视为同一个对象
+     *
+     * @param other 另一个对象，通常是目标端对象或检查点记录
+     */
+    public boolean matches(ObjectStat other) {
+        return other != null && size >= 0 && size == other.size
+                && (Objects.equals(etag, other.etag) || (etag != null && etag.equals(other.sourceEtag)));
+    }
+
+}
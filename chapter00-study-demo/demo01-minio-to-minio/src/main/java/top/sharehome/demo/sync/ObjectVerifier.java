@@ -0,0 +1,194 @@
+package top.sharehome.demo.sync;
+
+import io.minio.messages.Part;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import top.sharehome.demo.config.SyncProperties;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 对象校验器
+ * 复制时边传输边计算摘要（不会再读一遍对象），复制完成后比较：
+ * 1、目标端返回的ETag与按上传方式推算的ETag（单次上传为MD5，分片上传为各分片MD5拼接后的MD5加"-分片数"），确认目标端收到的就是读到的字节；
+ * 2、源对象ETag不是分片ETag时与整体MD5比较，是分片ETag时与推算的ETag比较（分片方式不同无法比较，记为源端未校验）；
+ * 不一致时抛出ChecksumMismatchException（属于IOException，会被重试），每个对象的结果追加到校验记录文件，
+ * 每行格式为：时间\t路径\t大小\t结果\t算法:内容摘要\t源ETag\t目标ETag，之后审计只需要HEAD目标对象比较ETag
+ * 注意：目标端开启服务端加密时ETag不是MD5，不能开启校验；服务端复制和整体缓冲复制不校验
+ *
+ * @author AntonyCheng
+ */
+@Component
+@Slf4j
+public class ObjectVerifier {
+
+    @Resource
+    private SyncProperties syncProperties;
+
+    private Scheduler scheduler;
+
+    private BufferedWriter writer;
+
+    /**
+     * 追加写校验记录的锁
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    @PostConstruct
+    public void init() throws IOException {
+        if (!isEnabled()) {
+            return;
+        }
+        SyncProperties.Verify verify = syncProperties.getVerify();
+        int threads = verify.getHashThreads() > 0 ? verify.getHashThreads() : Runtime.getRuntime().availableProcessors();
+        // 哈希是纯CPU计算，放在固定大小的"sync-hash"线程池上，不占用"sync"和"sync-part"的I/O线程
+        scheduler = Schedulers.newParallel("sync-hash", threads);
+        Path file = Path.of(verify.getFile());
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * 是否开启校验
+     */
+    public boolean isEnabled() {
+        return syncProperties.getVerify().isEnabled();
+    }
+
+    /**
+     * 创建流式复制的增量摘要
+     *
+     * @param partSize 上传分片大小
+     */
+    public StreamDigest newDigest(long partSize) {
+        return new StreamDigest(scheduler, partSize, syncProperties.getVerify().getAlgorithm());
+    }
+
+    /**
+     * 给复制数据流加上摘要计算
+     */
+    public InputStream digesting(InputStream in, StreamDigest digest) {
+        return new DigestingInputStream(in, digest);
+    }
+
+    /**
+     * 在"sync-hash"线程池上计算分片的MD5（十六进制）
+     */
+    public Mono<String> partMd5(byte[] data, int length) {
+        return Mono.fromCallable(() -> {
+                    DigestAlgorithm.Hasher md5 = DigestAlgorithm.MD5.newHasher();
+                    md5.update(data, 0, length);
+                    return md5.hex();
+                })
+                .subscribeOn(scheduler);
+    }
+
+    /**
+     * 校验目标端返回的分片ETag
+     */
+    public void verifyPart(SyncTask task, Part part, String md5) throws ChecksumMismatchException {
+        if (!md5.equalsIgnoreCase(StringUtils.strip(part.etag(), "\""))) {
+            throw new ChecksumMismatchException(task.getPath() + "，分片" + part.partNumber() + "，MD5=" + md5 + "，ETag=" + part.etag());
+        }
+    }
+
+    /**
+     * 由已校验的分片推算分片上传对象的摘要（分片ETag即分片MD5）
+     */
+    public CopyDigest multipartDigest(long size, Part[] parts) {
+        byte[] digests = new byte[parts.length * 16];
+        for (int i = 0; i < parts.length; i++) {
+            System.arraycopy(HexFormat.of().parseHex(StringUtils.strip(parts[i].etag(), "\"")), 0, digests, i * 16, 16);
+        }
+        String etag = HexFormat.of().formatHex(DigestAlgorithm.messageDigestOf("MD5", digests)) + "-" + parts.length;
+        return new CopyDigest(size, null, etag, DigestAlgorithm.MD5, etag);
+    }
+
+    /**
+     * 校验复制结果并记录
+     *
+     * @param path       路径
+     * @param digest     复制过程中计算出的摘要
+     * @param sourceEtag 源对象ETag
+     * @param destEtag   目标端返回的ETag
+     */
+    public void verify(String path, CopyDigest digest, String sourceEtag, String destEtag) throws ChecksumMismatchException {
+        sourceEtag = StringUtils.strip(sourceEtag, "\"");
+        destEtag = StringUtils.strip(destEtag, "\"");
+        boolean destinationMatches = digest.etag().equalsIgnoreCase(destEtag);
+        Boolean sourceMatches = null;
+        if (StringUtils.isNotBlank(sourceEtag)) {
+            if (!sourceEtag.contains("-") && digest.md5() != null) {
+                sourceMatches = sourceEtag.equalsIgnoreCase(digest.md5());
+            } else if (sourceEtag.equalsIgnoreCase(digest.etag())) {
+                sourceMatches = true;
+            }
+        }
+        String status = !destinationMatches || Boolean.FALSE.equals(sourceMatches) ? "MISMATCH"
+                : sourceMatches == null ? "DESTINATION_VERIFIED" : "VERIFIED";
+        record(path, digest, status, sourceEtag, destEtag);
+        if ("MISMATCH".equals(status)) {
+            throw new ChecksumMismatchException(path + "，推算ETag=" + digest.etag() + "，源ETag=" + sourceEtag + "，目标ETag=" + destEtag);
+        }
+    }
+
+    private void record(String path, CopyDigest digest, String status, String sourceEtag, String destEtag) {
+        lock.lock();
+        try {
+            writer.write(LocalDateTime.now() + "\t" + path + "\t" + digest.size() + "\t" + status + "\t"
+                    + digest.algorithm() + ":" + digest.content() + "\t" + sourceEtag + "\t" + destEtag);
+            writer.newLine();
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (writer != null) {
+                writer.close();
+            }
+            if (scheduler != null) {
+                scheduler.dispose();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 摘要不一致，按暂时性错误处理（重试会重新传输）
+     */
+    public static class ChecksumMismatchException extends IOException {
+
+        public ChecksumMismatchException(String message) {
+            super("校验不一致：" + message);
+        }
+
+    }
+
+}
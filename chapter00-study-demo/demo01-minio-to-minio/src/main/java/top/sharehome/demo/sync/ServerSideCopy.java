@@ -0,0 +1,23 @@
+package top.sharehome.demo.sync;
+
+/**
+ * 服务端复制策略
+ * 服务端复制由目标端直接从源桶读取数据（copyObject/composeObject），字节不经过JVM
+ * 源端和目标端使用相同的桶名称和对象名称，同一个部署上的服务端复制就是把对象复制到它自己身上，所以只有ALWAYS一种启用方式，
+ * 用于地址不同、但目标端能以同样的凭证读到源桶的集群（例如共享凭证的联邦集群）
+ *
+ * @author AntonyCheng
+ */
+public enum ServerSideCopy {
+
+    /**
+     * 始终尝试服务端复制，用于地址不同但共享凭证和存储的集群，被拒绝时回退到流式复制
+     */
+    ALWAYS,
+
+    /**
+     * 不使用服务端复制
+     */
+    NEVER
+
+}
@@ -0,0 +1,129 @@
+package top.sharehome.demo.sync;
+
+import reactor.core.scheduler.Scheduler;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 流式复制的增量摘要
+ * I/O线程只把读到的字节复制一份放进队列，摘要在"sync-hash"线程池上按顺序计算，不拖慢复制；
+ * 队列中最多积压MAX_PENDING_CHUNKS段，哈希跟不上时反压I/O线程
+ * 同时计算：整个对象的MD5、按分片大小切分的各分片MD5（用于推算分片上传的ETag）、以及记录用的内容摘要
+ *
+ * @author AntonyCheng
+ */
+public class StreamDigest {
+
+    private static final int MAX_PENDING_CHUNKS = 64;
+
+    private final Scheduler scheduler;
+
+    private final long partSize;
+
+    private final DigestAlgorithm algorithm;
+
+    private final DigestAlgorithm.Hasher md5 = DigestAlgorithm.MD5.newHasher();
+
+    private final DigestAlgorithm.Hasher content;
+
+    private DigestAlgorithm.Hasher partMd5 = DigestAlgorithm.MD5.newHasher();
+
+    private final ByteArrayOutputStream partDigests = new ByteArrayOutputStream();
+
+    private long partBytes;
+
+    private int partCount;
+
+    private long size;
+
+    private final Queue<byte[]> chunks = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger pending = new AtomicInteger();
+
+    private final Semaphore capacity = new Semaphore(MAX_PENDING_CHUNKS);
+
+    public StreamDigest(Scheduler scheduler, long partSize, DigestAlgorithm algorithm) {
+        this.scheduler = scheduler;
+        this.partSize = partSize;
+        this.algorithm = algorithm;
+        this.content = algorithm == DigestAlgorithm.MD5 ? null : algorithm.newHasher();
+    }
+
+    /**
+     * 提交一段字节，在I/O线程上调用
+     */
+    public void update(byte[] b, int off, int len) throws InterruptedException {
+        if (len <= 0) {
+            return;
+        }
+        capacity.acquire();
+        chunks.add(Arrays.copyOfRange(b, off, off + len));
+        // 只有从0变为1的线程负责调度，保证同一时刻只有一个线程在计算，摘要按读取顺序更新
+        if (pending.getAndIncrement() == 0) {
+            scheduler.schedule(this::drain);
+        }
+    }
+
+    private void drain() {
+        do {
+            byte[] chunk = chunks.poll();
+            hash(chunk);
+            capacity.release();
+        } while (pending.decrementAndGet() != 0);
+        synchronized (this) {
+            notifyAll();
+        }
+    }
+
+    private void hash(byte[] chunk) {
+        md5.update(chunk, 0, chunk.length);
+        if (content != null) {
+            content.update(chunk, 0, chunk.length);
+        }
+        int offset = 0;
+        while (offset < chunk.length) {
+            int length = (int) Math.min(chunk.length - offset, partSize - partBytes);
+            partMd5.update(chunk, offset, length);
+            partBytes += length;
+            offset += length;
+            if (partBytes == partSize) {
+                closePart();
+            }
+        }
+        size += chunk.length;
+    }
+
+    private void closePart() {
+        partDigests.writeBytes(partMd5.digest());
+        partMd5 = DigestAlgorithm.MD5.newHasher();
+        partBytes = 0;
+        partCount++;
+    }
+
+    /**
+     * 等待积压的字节计算完成，返回摘要结果，流读完之后调用一次
+     */
+    public CopyDigest finish() throws InterruptedException {
+        synchronized (this) {
+            while (pending.get() != 0) {
+                wait();
+            }
+        }
+        if (partBytes > 0) {
+            closePart();
+        }
+        String md5Hex = md5.hex();
+        // 只有一个分片时是单次上传，ETag即MD5；多个分片时ETag为各分片MD5拼接后再求MD5，加上"-分片数"
+        String etag = partCount <= 1
+                ? md5Hex
+                : HexFormat.of().formatHex(DigestAlgorithm.messageDigestOf("MD5", partDigests.toByteArray())) + "-" + partCount;
+        return new CopyDigest(size, md5Hex, etag, algorithm, content == null ? md5Hex : content.hex());
+    }
+
+}
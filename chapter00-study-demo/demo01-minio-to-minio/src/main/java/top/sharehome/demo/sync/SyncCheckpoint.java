@@ -0,0 +1,176 @@
+package top.sharehome.demo.sync;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import top.sharehome.demo.config.SyncProperties;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 同步检查点
+ * 以追加写文件的方式持久化每个路径的完成情况，每行格式为：ETag\t大小\t路径，
+ * 启动时回放整个文件（后写的记录覆盖先写的），崩溃时最后一行可能不完整，回放前先截掉没有换行结尾的残行，
+ * 否则残行会被当成一条记录（路径被截断），之后追加的第一条记录也会接在残行后面；
+ * ETag为"-"的记录表示路径已删除（镜像模式），回放时移除该路径
+ *
+ * @author AntonyCheng
+ */
+@Component
+@Slf4j
+public class SyncCheckpoint {
+
+    /**
+     * 删除记录的ETag
+     */
+    private static final String REMOVED = "-";
+
+    @Resource
+    private SyncProperties syncProperties;
+
+    private final Map<String, ObjectStat> entries = new ConcurrentHashMap<>();
+
+    private BufferedWriter writer;
+
+    /**
+     * 写文件时持有的锁，不使用synchronized，虚拟线程在锁内做文件I/O时不会占住载体线程
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    @PostConstruct
+    public void init() throws IOException {
+        if (!isEnabled()) {
+            return;
+        }
+        Path file = Path.of(syncProperties.getCheckpoint().getFile());
+        if (Files.exists(file)) {
+            truncateTornTail(file);
+            try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    String[] fields = line.split("\t", 3);
+                    if (fields.length < 3) {
+                        continue;
+                    }
+                    if (REMOVED.equals(fields[0])) {
+                        entries.remove(fields[2]);
+                        continue;
+                    }
+                    try {
+                        entries.put(fields[2], new ObjectStat(fields[0], Long.parseLong(fields[1])));
+                    } catch (NumberFormatException ignored) {
+                        // 崩溃时写了一半的记录
+                    }
+                }
+            }
+            log.info("检查点已加载：{}，共{}个路径", file, entries.size());
+        } else if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * 截掉文件末尾没有换行结尾的残行
+     */
+    private static void truncateTornTail(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            long end = size;
+            ByteBuffer buffer = ByteBuffer.allocate(1);
+            while (end > 0) {
+                buffer.clear();
+                channel.read(buffer, end - 1);
+                if (buffer.get(0) == '\n') {
+                    break;
+                }
+                end--;
+            }
+            if (end < size) {
+                log.warn("检查点最后一行不完整，已截掉{}字节：{}", size - end, file);
+                channel.truncate(end);
+            }
+        }
+    }
+
+    /**
+     * 是否开启增量同步
+     */
+    public boolean isEnabled() {
+        return syncProperties.getCheckpoint().isEnabled();
+    }
+
+    /**
+     * 获取路径上次同步完成时的源对象元数据，没有记录返回null
+     */
+    public ObjectStat get(String path) {
+        return entries.get(path);
+    }
+
+    /**
+     * 记录路径同步完成，每条记录写完立即刷出，进程崩溃时不会丢失已完成的记录
+     */
+    public void record(String path, ObjectStat stat) {
+        if (!isEnabled() || stat.matches(entries.get(path))) {
+            return;
+        }
+        lock.lock();
+        try {
+            writer.write(stat.etag() + "\t" + stat.size() + "\t" + path);
+            writer.newLine();
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.unlock();
+        }
+        entries.put(path, stat);
+    }
+
+    /**
+     * 移除路径的记录（目标对象已删除），之后同一路径重新出现时会重新复制
+     */
+    public void forget(String path) {
+        if (!isEnabled() || !entries.containsKey(path)) {
+            return;
+        }
+        lock.lock();
+        try {
+            writer.write(REMOVED + "\t-1\t" + path);
+            writer.newLine();
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.unlock();
+        }
+        entries.remove(path);
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (writer != null) {
+                writer.close();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+}
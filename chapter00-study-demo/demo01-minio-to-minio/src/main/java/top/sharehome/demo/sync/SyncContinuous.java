@@ -0,0 +1,148 @@
+package top.sharehome.demo.sync;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import top.sharehome.demo.config.SyncProperties;
+import top.sharehome.demo.model.entity.SpecieDataFile;
+import top.sharehome.demo.service.SpecieDataFileService;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 持续同步
+ * 按（更新时间，主键）水位线轮询新增和修改的行，交给同一条同步流水线复制：
+ * 1、每轮只读取更新时间早于"当前时间-稳定延迟"的行，按页复制，一页全部结束（成功、跳过或记入死信）后水位线才推进到该页最后一行并落盘；
+ * 2、一轮读完后水位线推进到本轮截止时间，没有新行时延迟指标也不会增长；
+ * 3、同时只有一轮在执行，上一轮没有结束时跳过定时信号，复制变慢时延迟变大但内存不会堆积；
+ * 4、一轮失败（例如数据库不可用）只记录日志，下一轮从水位线继续
+ *
+ * @author AntonyCheng
+ */
+@Component
+@Slf4j
+public class SyncContinuous {
+
+    @Resource
+    private SyncProperties syncProperties;
+
+    @Resource
+    private SpecieDataFileService specieDataFileService;
+
+    @Resource
+    private SyncPipeline syncPipeline;
+
+    @Resource
+    private SyncMirror syncMirror;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    private final AtomicReference<Watermark> watermark = new AtomicReference<>();
+
+    @PostConstruct
+    public void init() {
+        if (!isEnabled()) {
+            return;
+        }
+        Gauge.builder("sync.continuous.lag", watermark, SyncContinuous::lagSeconds).baseUnit("seconds").register(meterRegistry);
+    }
+
+    /**
+     * 是否开启持续同步
+     */
+    public boolean isEnabled() {
+        return syncProperties.getContinuous().isEnabled();
+    }
+
+    /**
+     * 确定起始水位线：有水位线文件时从文件继续，否则从"当前时间-稳定延迟"开始（之前的行由全量同步负责），
+     * 必须在全量同步开始前调用，全量同步期间新增的行才会被轮询到
+     */
+    public void start() throws IOException {
+        SyncProperties.Continuous continuous = syncProperties.getContinuous();
+        Watermark start = Watermark.load(continuous.getWatermarkFile());
+        if (start == null) {
+            start = new Watermark(new Date(System.currentTimeMillis() - continuous.getSettleDelay().toMillis()), 0L);
+            start.save(continuous.getWatermarkFile());
+        }
+        watermark.set(start);
+        log.info("持续同步水位线：{}，{}", start.time(), start.id());
+    }
+
+    /**
+     * 按轮询间隔持续同步，每页输出一次报告，数据流不会结束，取消订阅即停止
+     */
+    public Flux<SyncReport> run() {
+        return Flux.interval(Duration.ZERO, syncProperties.getContinuous().getPollInterval())
+                // 上一轮没有结束时丢弃定时信号
+                .onBackpressureDrop()
+                .concatMap(tick -> poll(), 1);
+    }
+
+    /**
+     * 一轮轮询：复制水位线之后的修改行，开启镜像删除时再删除新软删除的对象
+     */
+    private Flux<SyncReport> poll() {
+        Watermark from = watermark.get();
+        Date until = new Date(System.currentTimeMillis() - syncProperties.getContinuous().getSettleDelay().toMillis());
+        int pageSize = syncProperties.getPageSize();
+        Flux<SyncReport> copies = specieDataFileService.streamChangedFiles(from.time(), from.id(), until, syncProperties.getPathPrefix(), pageSize)
+                .buffer(pageSize)
+                // 页按顺序复制，水位线才能单调推进；页内仍按流水线的并发上限并行
+                .concatMap(rows -> syncPipeline.process(Flux.fromIterable(rows)
+                                        .map(row -> SyncTask.of(row.getPath(), row.getFileType()).setChanged(true)))
+                                .reduceWith(SyncReport::new, SyncReport::add)
+                                .publishOn(Schedulers.boundedElastic())
+                                .doOnNext(report -> advance(last(rows))), 1)
+                .doOnNext(report -> log.info("持续同步：{}", report))
+                // 截止时间之前的行都已读完，下一轮从截止时间开始（主键从0开始，截止时间上的行仍会被读到）
+                .concatWith(Mono.<SyncReport>fromRunnable(() -> advance(new Watermark(until, 0L))).subscribeOn(Schedulers.boundedElastic()));
+        Mono<SyncReport> mirror = syncMirror.isEnabled()
+                ? syncMirror.run().filter(report -> report.getRows() > 0).doOnNext(report -> log.info("持续镜像删除：{}", report)).then(Mono.empty())
+                : Mono.empty();
+        return copies.concatWith(mirror)
+                .onErrorResume(throwable -> {
+                    log.error("持续同步本轮失败，下一轮从水位线继续：" + throwable);
+                    return Mono.empty();
+                });
+    }
+
+    private static Watermark last(List<SpecieDataFile> rows) {
+        SpecieDataFile last = rows.get(rows.size() - 1);
+        return new Watermark(last.getUpdateTime(), last.getSpecieDataFileId());
+    }
+
+    /**
+     * 推进水位线并落盘，不会后退
+     */
+    private void advance(Watermark next) {
+        Watermark current = watermark.get();
+        if (current.time().after(next.time()) || (current.time().equals(next.time()) && current.id() >= next.id())) {
+            return;
+        }
+        try {
+            next.save(syncProperties.getContinuous().getWatermarkFile());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        watermark.set(next);
+    }
+
+    private static double lagSeconds(AtomicReference<Watermark> watermark) {
+        Watermark current = watermark.get();
+        return current == null ? 0 : (System.currentTimeMillis() - current.time().getTime()) / 1000D;
+    }
+
+}
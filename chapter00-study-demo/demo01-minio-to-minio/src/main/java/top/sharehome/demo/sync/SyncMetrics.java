@@ -0,0 +1,189 @@
+package top.sharehome.demo.sync;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 同步指标
+ * 所有Micrometer指标以sync.开头：
+ * 1、sync.stage：各阶段耗时（stage=db-fetch/stat/get/put/server-side-copy/checkpoint），带p50/p99；
+ * 2、sync.transfer：单个对象从开始到结束的耗时（lane=SMALL/LARGE），带p50/p99；
+ * 3、sync.objects（status=COPIED/SKIPPED/FAILED/INVALID）、sync.bytes、sync.retries：计数器；
+ * 4、sync.in-flight、sync.in-flight.bytes：在途对象数和在途字节数；
+ * 同时维护本次运行的进度，用于进度日志和/sync/progress接口
+ *
+ * @author AntonyCheng
+ */
+@Component
+public class SyncMetrics {
+
+    public static final String STAGE_DB_FETCH = "db-fetch";
+
+    public static final String STAGE_STAT = "stat";
+
+    public static final String STAGE_GET = "get";
+
+    public static final String STAGE_PUT = "put";
+
+    public static final String STAGE_SERVER_SIDE_COPY = "server-side-copy";
+
+    public static final String STAGE_CHECKPOINT = "checkpoint";
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    @Resource
+    private ByteBudget byteBudget;
+
+    @Resource
+    private AdaptiveConcurrencyLimiter concurrencyLimiter;
+
+    private final Map<String, Timer> stageTimers = new ConcurrentHashMap<>();
+
+    private final Map<SyncTask.Lane, Timer> transferTimers = new ConcurrentHashMap<>();
+
+    private final Map<SyncResult.Status, Counter> objectCounters = new ConcurrentHashMap<>();
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private Counter bytesCounter;
+
+    private Counter retriesCounter;
+
+    // 本次运行的进度
+    private volatile long startNanos = System.nanoTime();
+
+    private volatile Long total;
+
+    private final Map<SyncResult.Status, LongAdder> runObjects = new ConcurrentHashMap<>();
+
+    private final LongAdder runBytes = new LongAdder();
+
+    private final LongAdder runRetries = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        for (SyncResult.Status status : SyncResult.Status.values()) {
+            objectCounters.put(status, Counter.builder("sync.objects").tag("status", status.name()).register(meterRegistry));
+            runObjects.put(status, new LongAdder());
+        }
+        bytesCounter = Counter.builder("sync.bytes").baseUnit("bytes").register(meterRegistry);
+        retriesCounter = Counter.builder("sync.retries").register(meterRegistry);
+        Gauge.builder("sync.in-flight", inFlight, AtomicInteger::get).register(meterRegistry);
+        Gauge.builder("sync.in-flight.bytes", byteBudget, ByteBudget::inFlightBytes).baseUnit("bytes").register(meterRegistry);
+    }
+
+    /**
+     * 阶段耗时计时器
+     */
+    public Timer stage(String stage) {
+        return stageTimers.computeIfAbsent(stage, key -> Timer.builder("sync.stage")
+                .tag("stage", key)
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry));
+    }
+
+    /**
+     * 记录一个阶段的耗时
+     */
+    public <T> T time(String stage, Callable<T> callable) throws Exception {
+        return stage(stage).recordCallable(callable);
+    }
+
+    private Timer transfer(SyncTask.Lane lane) {
+        return transferTimers.computeIfAbsent(lane, key -> Timer.builder("sync.transfer")
+                .tag("lane", key.name())
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry));
+    }
+
+    /**
+     * 开始新的一次运行，清空本次运行的进度
+     */
+    public void start() {
+        startNanos = System.nanoTime();
+        total = null;
+        runObjects.values().forEach(LongAdder::reset);
+        runBytes.reset();
+        runRetries.reset();
+    }
+
+    /**
+     * 设置待同步总数（异步统计完成后设置），用于计算预计剩余时间
+     */
+    public void setTotal(Long total) {
+        this.total = total;
+    }
+
+    /**
+     * 对象开始传输
+     */
+    public void transferStarted() {
+        inFlight.incrementAndGet();
+    }
+
+    /**
+     * 对象传输结束
+     */
+    public void transferFinished(SyncTask task, SyncResult result, long nanos) {
+        inFlight.decrementAndGet();
+        objectCounters.get(result.status()).increment();
+        runObjects.get(result.status()).increment();
+        if (result.status() == SyncResult.Status.COPIED) {
+            bytesCounter.increment(result.bytes());
+            runBytes.add(result.bytes());
+            transfer(task.getLane() == null ? SyncTask.Lane.SMALL : task.getLane()).record(nanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * 记录一次重试
+     */
+    public void retried() {
+        retriesCounter.increment();
+        runRetries.increment();
+    }
+
+    /**
+     * 本次运行的进度快照
+     */
+    public SyncProgress progress() {
+        double seconds = Math.max((System.nanoTime() - startNanos) / 1e9, 0.001);
+        long copied = runObjects.get(SyncResult.Status.COPIED).sum();
+        long skipped = runObjects.get(SyncResult.Status.SKIPPED).sum();
+        long failed = runObjects.get(SyncResult.Status.FAILED).sum();
+        long invalid = runObjects.get(SyncResult.Status.INVALID).sum();
+        long processed = copied + skipped + failed + invalid;
+        long bytes = runBytes.sum();
+        double objectsPerSecond = processed / seconds;
+        Long total = this.total;
+        Long eta = total == null || objectsPerSecond <= 0 ? null : (long) (Math.max(total - processed, 0) / objectsPerSecond);
+        Timer small = transfer(SyncTask.Lane.SMALL);
+        return new SyncProgress((long) seconds, total, processed, copied, skipped, failed, invalid, runRetries.sum(), bytes,
+                objectsPerSecond, bytes / 1048576D / seconds, inFlight.get(), byteBudget.inFlightBytes(),
+                concurrencyLimiter.getLimit(), percentile(small, 0.5), percentile(small, 0.99), eta);
+    }
+
+    private static double percentile(Timer timer, double percentile) {
+        for (ValueAtPercentile value : timer.takeSnapshot().percentileValues()) {
+            if (value.percentile() == percentile) {
+                return value.value(TimeUnit.MILLISECONDS);
+            }
+        }
+        return 0;
+    }
+
+}
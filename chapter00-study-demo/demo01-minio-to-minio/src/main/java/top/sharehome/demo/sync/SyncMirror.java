@@ -0,0 +1,153 @@
+package top.sharehome.demo.sync;
+
+import io.minio.MinioClient;
+import io.minio.RemoveObjectsArgs;
+import io.minio.Result;
+import io.minio.messages.DeleteError;
+import io.minio.messages.DeleteObject;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.retry.Retry;
+import top.sharehome.demo.config.SyncProperties;
+import top.sharehome.demo.model.entity.SpecieDataFile;
+import top.sharehome.demo.service.SpecieDataFileService;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 镜像删除
+ * 按（删除时间，主键）水位线增量读取上次之后软删除的行，分批删除目标端对象：
+ * 1、同一路径仍被其他未删除行引用时保留；
+ * 2、按桶分组，每次removeObjects最多1000个对象，目标对象不存在视为已删除；
+ * 3、一个批次全部删除成功后才把水位线推进到该批次最后一行并落盘，批次失败按退避重试，仍然失败则停止，下次从水位线继续
+ *
+ * @author AntonyCheng
+ */
+@Component
+@Slf4j
+public class SyncMirror {
+
+    /**
+     * 单次removeObjects请求的对象数上限（S3限制）
+     */
+    private static final int MAX_KEYS_PER_REQUEST = 1000;
+
+    @Resource
+    private SyncProperties syncProperties;
+
+    @Resource
+    private SpecieDataFileService specieDataFileService;
+
+    @Resource
+    private MinioClientRegistry minioClientRegistry;
+
+    @Resource
+    private SyncCheckpoint syncCheckpoint;
+
+    /**
+     * 是否开启镜像删除
+     */
+    public boolean isEnabled() {
+        return syncProperties.getMirror().isEnabled();
+    }
+
+    /**
+     * 删除水位线之后软删除的行对应的目标对象
+     */
+    public Mono<MirrorReport> run() {
+        SyncProperties.Mirror mirror = syncProperties.getMirror();
+        SyncProperties.Retry retry = syncProperties.getRetry();
+        int batchSize = Math.min(mirror.getBatchSize(), MAX_KEYS_PER_REQUEST);
+        return Mono.fromCallable(this::loadWatermark)
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMapMany(watermark -> specieDataFileService.streamDeletedFiles(watermark.time(), watermark.id(),
+                        syncProperties.getPathPrefix(), syncProperties.getPageSize()))
+                .buffer(batchSize)
+                // 批次按顺序执行，水位线才能单调推进
+                .concatMap(rows -> Mono.fromCallable(() -> deleteBatch(rows))
+                        .subscribeOn(Schedulers.boundedElastic())
+                        .retryWhen(Retry.backoff(retry.getMaxAttempts(), retry.getMinBackoff())
+                                .maxBackoff(retry.getMaxBackoff())
+                                .jitter(retry.getJitter())
+                                .filter(SyncPipeline::isRetryable)
+                                .doBeforeRetry(signal -> log.warn("镜像删除第{}次重试：{}", signal.totalRetries() + 1, signal.failure().toString()))))
+                .reduceWith(MirrorReport::new, MirrorReport::add);
+    }
+
+    private MirrorReport deleteBatch(List<SpecieDataFile> rows) throws Exception {
+        MirrorReport report = new MirrorReport();
+        report.rows(rows.size());
+        Set<String> paths = new LinkedHashSet<>();
+        rows.forEach(row -> paths.add(row.getPath()));
+        Set<String> live = new HashSet<>(specieDataFileService.listLivePaths(paths));
+        report.live(live.size());
+        // 按桶分组
+        Map<String, List<SyncTask>> buckets = new LinkedHashMap<>();
+        for (String path : paths) {
+            if (!live.contains(path)) {
+                SyncTask task = SyncTask.of(path, null);
+                // 非法路径从未被复制过，目标端没有可删除的对象
+                if (!task.isValid()) {
+                    continue;
+                }
+                buckets.computeIfAbsent(task.getBucketName(), key -> new ArrayList<>()).add(task);
+            }
+        }
+        // 配置了副本时每个目标端都要删除，全部删除成功后才移除检查点记录
+        List<MinioClient> destClients = syncProperties.destinations().stream().map(minioClientRegistry::getClient).toList();
+        for (Map.Entry<String, List<SyncTask>> bucket : buckets.entrySet()) {
+            List<SyncTask> tasks = bucket.getValue();
+            for (int from = 0; from < tasks.size(); from += MAX_KEYS_PER_REQUEST) {
+                List<SyncTask> chunk = tasks.subList(from, Math.min(from + MAX_KEYS_PER_REQUEST, tasks.size()));
+                for (MinioClient destClient : destClients) {
+                    removeObjects(destClient, bucket.getKey(), chunk);
+                    report.requested();
+                }
+                chunk.forEach(task -> syncCheckpoint.forget(task.getPath()));
+                report.deleted(chunk.size());
+            }
+        }
+        SpecieDataFile last = rows.get(rows.size() - 1);
+        new Watermark(last.getDeleteTime(), last.getSpecieDataFileId()).save(syncProperties.getMirror().getWatermarkFile());
+        return report;
+    }
+
+    private static void removeObjects(MinioClient client, String bucketName, List<SyncTask> tasks) throws Exception {
+        List<DeleteObject> objects = tasks.stream().map(task -> new DeleteObject(task.getObjectName())).toList();
+        // removeObjects是懒执行的，必须遍历结果才会发出请求，结果里只有删除失败的对象
+        List<String> errors = new ArrayList<>();
+        for (Result<DeleteError> result : client.removeObjects(RemoveObjectsArgs.builder().bucket(bucketName).objects(objects).build())) {
+            DeleteError error = result.get();
+            if (!"NoSuchKey".equals(error.code()) && !"NoSuchBucket".equals(error.code())) {
+                errors.add(error.objectName() + "：" + error.code());
+            }
+        }
+        if (!errors.isEmpty()) {
+            throw new IOException("删除目标对象失败：" + bucketName + "，" + errors);
+        }
+    }
+
+    /**
+     * 读取水位线，没有水位线文件时从头开始
+     */
+    private Watermark loadWatermark() throws IOException {
+        Watermark watermark = Watermark.load(syncProperties.getMirror().getWatermarkFile());
+        if (watermark == null) {
+            watermark = new Watermark(new Date(0), 0L);
+        }
+        log.info("镜像删除水位线：{}，{}", watermark.time(), watermark.id());
+        return watermark;
+    }
+
+}
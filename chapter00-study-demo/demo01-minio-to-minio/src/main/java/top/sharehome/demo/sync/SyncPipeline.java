@@ -0,0 +1,353 @@
+package top.sharehome.demo.sync;
+
+import io.minio.errors.ErrorResponseException;
+import io.minio.errors.InsufficientDataException;
+import io.minio.errors.ServerException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.retry.Retry;
+import top.sharehome.demo.config.SyncProperties;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * 同步流水线
+ * 任务数据流 -> 按大小分通道 -> flatMap限制同时进行的对象数 -> 阻塞的MinIO调用隔离在"sync"弹性线程池（或虚拟线程）上 -> 汇总报告，
+ * 单个路径的暂时性错误按指数退避重试，最终失败只记录失败结果和死信，不会中断整个数据流；对象的堆内存占用另外由ByteBudget限制
+ *
+ * @author AntonyCheng
+ */
+@Component
+@Slf4j
+public class SyncPipeline {
+
+    /**
+     * 可以重试的错误码
+     */
+    private static final Set<String> RETRYABLE_CODES = Set.of("SlowDown", "ServiceUnavailable", "InternalError", "RequestTimeout", "RequestTimeTooSkewed");
+
+    @Resource
+    private SyncProperties syncProperties;
+
+    @Resource
+    private ObjectCopier objectCopier;
+
+    @Resource
+    private SyncCheckpoint syncCheckpoint;
+
+    @Resource
+    private AdaptiveConcurrencyLimiter concurrencyLimiter;
+
+    @Resource
+    private SyncMetrics syncMetrics;
+
+    @Resource
+    private DeadLetterJournal deadLetterJournal;
+
+    @Resource
+    private InvalidPathReport invalidPathReport;
+
+    private Scheduler scheduler;
+
+    /**
+     * 虚拟线程方式下限制同时进行的阻塞调用数，线程池方式为null（由线程数限制）
+     */
+    private Semaphore permits;
+
+    @PostConstruct
+    public void init() {
+        int threadCap = syncProperties.maxConcurrency() + (syncProperties.getLanes().isEnabled() ? syncProperties.getLanes().getLargeConcurrency() : 0);
+        SyncProperties.Execution execution = syncProperties.getExecution();
+        if (execution.getMode() == ExecutionMode.VIRTUAL) {
+            // 每个任务一个虚拟线程，线程数不再是上限，同时进行的阻塞调用数由信号量限制
+            scheduler = Schedulers.fromExecutorService(Executors.newVirtualThreadPerTaskExecutor(), "sync-virtual");
+            permits = new Semaphore(execution.getMaxBlocking() != null ? execution.getMaxBlocking() : threadCap);
+        } else {
+            // 线程上限与并发对象数的硬上限一致
+            scheduler = Schedulers.newBoundedElastic(threadCap, Integer.MAX_VALUE, "sync");
+        }
+    }
+
+    /**
+     * 同步数据流中的所有任务
+     * 开启分通道时先分类：小对象进入高并发通道，大对象进入低并发的分片通道，
+     * 两个通道各自限制并发，少量超大视频不会堵住成千上万的缩略图
+     *
+     * @param tasks 同步任务数据流
+     * @return 同步完成后的汇总报告
+     */
+    public Mono<SyncReport> run(Flux<SyncTask> tasks) {
+        return monitored(process(tasks))
+                .reduceWith(SyncReport::new, SyncReport::add);
+    }
+
+    /**
+     * 给数据流加上同步指标：订阅时重置指标并定期输出进度日志，数据流结束（完成、出错或取消）时停止，
+     * 持续同步用它包住整个轮询数据流，进度在各批次之间累计
+     */
+    public <T> Flux<T> monitored(Flux<T> source) {
+        return Flux.defer(() -> {
+            syncMetrics.start();
+            Disposable progressLog = Flux.interval(syncProperties.getMetrics().getProgressInterval())
+                    .subscribe(tick -> log.info("同步进度：{}", syncMetrics.progress()));
+            return source
+                    .doFinally(signal -> {
+                        progressLog.dispose();
+                        log.info("同步进度：{}", syncMetrics.progress());
+                    });
+        });
+    }
+
+    /**
+     * 同步数据流中的所有任务，输出每个任务的结果（不保证顺序）
+     */
+    public Flux<SyncResult> process(Flux<SyncTask> tasks) {
+        if (!syncProperties.getLanes().isEnabled()) {
+            return tasks
+                    // 同时进行中的对象数硬上限，上游按需请求，不会一次性拉取全部路径，
+                    // 开启自适应并发时实际并发数由AdaptiveConcurrencyLimiter在此范围内调整
+                    .flatMap(this::sync, syncProperties.maxConcurrency());
+        }
+        SyncProperties.Lanes lanes = syncProperties.getLanes();
+        // 不用groupBy：各分组共用groupBy的一份预取（256），一段连续的大对象就能占满它，小对象通道随之停顿；
+        // 这里每个通道用limitRate各自持有一个有界缓冲区，只有某个通道的缓冲区满了才会停止分类
+        return tasks
+                .flatMap(this::classify, syncProperties.maxConcurrency())
+                .publish(classified -> Flux.merge(
+                        lane(classified, SyncTask.Lane.SMALL, syncProperties.maxConcurrency()),
+                        lane(classified, SyncTask.Lane.LARGE, lanes.getLargeConcurrency())));
+    }
+
+    /**
+     * 一个通道：从已分类的任务中取出本通道的任务，放进本通道的有界缓冲区，按本通道的并发数同步
+     */
+    private Flux<SyncResult> lane(Flux<SyncTask> classified, SyncTask.Lane lane, int concurrency) {
+        return classified
+                .filter(task -> task.getLane() == lane)
+                .limitRate(syncProperties.getLanes().getLaneBuffer())
+                .flatMap(this::sync, concurrency);
+    }
+
+    /**
+     * 同步单个任务，暂时性错误按指数退避重试，重试后仍然失败的任务记入死信文件并转换为失败结果，
+     * 路径不合法的任务不复制，记入非法路径报告并转换为非法路径结果
+     */
+    public Mono<SyncResult> sync(SyncTask task) {
+        String path = task.getPath();
+        if (!task.isValid()) {
+            return Mono.fromCallable(() -> {
+                        invalidPathReport.record(task);
+                        SyncResult result = SyncResult.invalid(path);
+                        syncMetrics.transferStarted();
+                        syncMetrics.transferFinished(task, result, 0);
+                        return result;
+                    })
+                    .subscribeOn(scheduler);
+        }
+        // 每次尝试都订阅在"sync"线程池上，退避结束后的重新订阅不会占用定时器线程执行阻塞调用
+        Mono<SyncResult> once = Mono.fromCallable(() -> blocking(() -> attempt(task)))
+                .subscribeOn(scheduler);
+        Mono<SyncResult> attempts = syncProperties.getRetry().isEnabled() ? once.retryWhen(retrySpec(path)) : once;
+        return Mono.fromCallable(() -> {
+                    syncMetrics.transferStarted();
+                    return System.nanoTime();
+                })
+                .flatMap(start -> attempts
+                        .doOnNext(result -> log.info(result.status() == SyncResult.Status.COPIED ? path : "跳过：" + path))
+                        .onErrorResume(throwable -> {
+                            Throwable cause = Exceptions.isRetryExhausted(throwable) ? throwable.getCause() : throwable;
+                            log.error("error:" + path, cause);
+                            objectCopier.abandon(task);
+                            deadLetterJournal.record(task, cause);
+                            return Mono.just(SyncResult.failed(path));
+                        })
+                        .doOnNext(result -> syncMetrics.transferFinished(task, result, System.nanoTime() - start)))
+                .subscribeOn(scheduler);
+    }
+
+    private Retry retrySpec(String path) {
+        SyncProperties.Retry retry = syncProperties.getRetry();
+        return Retry.backoff(retry.getMaxAttempts(), retry.getMinBackoff())
+                .maxBackoff(retry.getMaxBackoff())
+                .jitter(retry.getJitter())
+                .filter(SyncPipeline::isRetryable)
+                .doBeforeRetry(signal -> {
+                    syncMetrics.retried();
+                    log.warn("第{}次重试：{}，{}", signal.totalRetries() + 1, path, signal.failure().toString());
+                });
+    }
+
+    /**
+     * 是否为暂时性错误：网络异常（包括端点熔断）、5xx、限流和超时，
+     * 对象不存在、无权限等错误重试也不会成功
+     */
+    static boolean isRetryable(Throwable throwable) {
+        for (Throwable t = throwable; t != null; t = t.getCause()) {
+            if (t instanceof IOException || t instanceof ServerException || t instanceof InsufficientDataException) {
+                return true;
+            }
+            if (t instanceof ErrorResponseException e) {
+                return RETRYABLE_CODES.contains(e.errorResponse().code()) || (e.response() != null && e.response().code() >= 500);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 单次尝试
+     */
+    private SyncResult attempt(SyncTask task) throws Exception {
+        task.setAttempts(task.getAttempts() + 1);
+        return task.getLane() == SyncTask.Lane.LARGE ? minioToMinio(task) : limitedMinioToMinio(task);
+    }
+
+    /**
+     * 按大小给任务分类：
+     * 1、命中检查点且不需要校验源对象的任务会被直接跳过，不必查询；
+     * 2、信任数据库文件类型时，图片直接进入小对象通道，不必查询；
+     * 3、其余任务查询源对象大小，视频或超过阈值的对象进入大对象通道，查询结果留给后续复制复用；
+     * 查询失败的任务和路径不合法的任务进入小对象通道，由复制阶段给出失败或非法路径结果
+     */
+    private Mono<SyncTask> classify(SyncTask task) {
+        SyncProperties.Lanes lanes = syncProperties.getLanes();
+        boolean checkpointHit = syncCheckpoint.isEnabled() && syncCheckpoint.get(task.getPath()) != null
+                && !syncProperties.getCheckpoint().isVerifySource() && !task.isChanged();
+        boolean trustedSmall = lanes.isTrustFileType() && task.getFileType() != null && !SyncTask.FILE_TYPE_VIDEO.equals(task.getFileType());
+        if (!task.isValid() || checkpointHit || trustedSmall) {
+            return Mono.just(task.setLane(SyncTask.Lane.SMALL));
+        }
+        return Mono.fromCallable(() -> blocking(() -> {
+                    ObjectStat source = objectCopier.statSource(task.getBucketName(), task.getObjectName());
+                    boolean large = source != null && (SyncTask.FILE_TYPE_VIDEO.equals(task.getFileType())
+                            || source.size() >= lanes.getLargeThreshold().toBytes());
+                    return task.setSource(source).setLane(large ? SyncTask.Lane.LARGE : SyncTask.Lane.SMALL);
+                }))
+                .subscribeOn(scheduler)
+                .onErrorResume(throwable -> Mono.just(task.setLane(SyncTask.Lane.SMALL)));
+    }
+
+    /**
+     * 执行阻塞调用，虚拟线程方式下先获取信号量许可，许可不足时只挂起虚拟线程
+     */
+    private <T> T blocking(Callable<T> call) throws Exception {
+        if (permits == null) {
+            return call.call();
+        }
+        permits.acquire();
+        try {
+            return call.call();
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * 在自适应并发限制下同步，复制结果作为吞吐量和延迟样本反馈给限制器
+     */
+    private SyncResult limitedMinioToMinio(SyncTask task) throws Exception {
+        if (!concurrencyLimiter.isEnabled()) {
+            return minioToMinio(task);
+        }
+        concurrencyLimiter.acquire();
+        long start = System.nanoTime();
+        boolean success = false;
+        long bytes = -1;
+        try {
+            SyncResult result = minioToMinio(task);
+            success = true;
+            if (result.status() == SyncResult.Status.COPIED) {
+                bytes = result.bytes();
+            }
+            return result;
+        } finally {
+            concurrencyLimiter.release(bytes, System.nanoTime() - start, success);
+        }
+    }
+
+    /**
+     * 同步单个对象
+     *
+     * @param task 同步任务
+     * @return 同步结果，增量同步命中检查点时为跳过
+     * @throws Exception
+     */
+    private SyncResult minioToMinio(SyncTask task) throws Exception {
+        //增量同步：已经同步过的对象直接跳过
+        if (syncCheckpoint.isEnabled() && alreadySynced(task)) {
+            return SyncResult.skipped(task.getPath());
+        }
+        //重试：上一次尝试可能已经复制完成（例如响应丢失或检查点写入失败），目标对象一致时不再重新读取源对象
+        if (task.getAttempts() > 1 && task.getUpload() == null && copiedByPreviousAttempt(task)) {
+            return SyncResult.copied(task.getPath(), task.getSource().size());
+        }
+        //复制对象（流式复制时对象不会整体进入堆内存）
+        ObjectStat stat = objectCopier.copy(task);
+        recordCheckpoint(task.getPath(), stat);
+        return SyncResult.copied(task.getPath(), stat.size());
+    }
+
+    /**
+     * 判断对象是否已经同步：
+     * 1、检查点有记录且不要求校验源对象（持续同步读到的修改行总是校验），直接跳过；
+     * 2、检查点记录的ETag和大小与源对象一致，跳过；
+     * 3、所有目标端（包括副本）对象的ETag和大小与源对象一致（例如上次同步后检查点未落盘），补记检查点后跳过；
+     */
+    private boolean alreadySynced(SyncTask task) throws Exception {
+        ObjectStat checkpoint = syncCheckpoint.get(task.getPath());
+        if (checkpoint != null && !syncProperties.getCheckpoint().isVerifySource() && !task.isChanged()) {
+            return true;
+        }
+        ObjectStat source = task.getSource();
+        if (source == null) {
+            source = objectCopier.statSource(task.getBucketName(), task.getObjectName());
+            task.setSource(source);
+        }
+        if (source == null) {
+            return false;
+        }
+        if (source.matches(checkpoint)) {
+            return true;
+        }
+        if (objectCopier.replicated(task, source)) {
+            recordCheckpoint(task.getPath(), source);
+            return true;
+        }
+        return false;
+    }
+
+    private boolean copiedByPreviousAttempt(SyncTask task) throws Exception {
+        if (task.getSource() == null) {
+            task.setSource(objectCopier.statSource(task.getBucketName(), task.getObjectName()));
+        }
+        if (task.getSource() == null || !objectCopier.replicated(task, task.getSource())) {
+            return false;
+        }
+        recordCheckpoint(task.getPath(), task.getSource());
+        return true;
+    }
+
+    private void recordCheckpoint(String path, ObjectStat stat) {
+        if (syncCheckpoint.isEnabled()) {
+            syncMetrics.stage(SyncMetrics.STAGE_CHECKPOINT).record(() -> syncCheckpoint.record(path, stat));
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        scheduler.dispose();
+    }
+
+}
@@ -0,0 +1,98 @@
+package top.sharehome.demo.sync;
+
+import lombok.Getter;
+
+import java.time.Duration;
+
+/**
+ * 同步计划（试运行结果）
+ *
+ * @author AntonyCheng
+ */
+@Getter
+public class SyncPlan {
+
+    private final long startNanos = System.nanoTime();
+
+    /**
+     * 目标端缺失，需要复制
+     */
+    private long missing;
+
+    private long missingBytes;
+
+    /**
+     * 目标端存在但ETag或大小不同，需要复制
+     */
+    private long stale;
+
+    private long staleBytes;
+
+    /**
+     * 其中大小相同、只有分片ETag不同且目标端没有记录源对象ETag的对象（例如由其他工具复制，分片上传方式不同也会导致ETag不同，内容可能相同）；
+     * 本程序复制的对象记录了源对象ETag，按ObjectStat.matches判断，不会计入这里
+     */
+    private long staleMultipartEtag;
+
+    /**
+     * 目标端已经一致，不需要复制
+     */
+    private long identical;
+
+    private long identicalBytes;
+
+    /**
+     * 源端不存在，无法复制
+     */
+    private long sourceMissing;
+
+    void missing(long bytes) {
+        missing++;
+        missingBytes += bytes;
+    }
+
+    void stale(long bytes, boolean multipartEtagOnly) {
+        stale++;
+        staleBytes += bytes;
+        if (multipartEtagOnly) {
+            staleMultipartEtag++;
+        }
+    }
+
+    void identical(long bytes) {
+        identical++;
+        identicalBytes += bytes;
+    }
+
+    void sourceMissing() {
+        sourceMissing++;
+    }
+
+    /**
+     * 合并另一个桶的计划
+     */
+    SyncPlan merge(SyncPlan other) {
+        missing += other.missing;
+        missingBytes += other.missingBytes;
+        stale += other.stale;
+        staleBytes += other.staleBytes;
+        staleMultipartEtag += other.staleMultipartEtag;
+        identical += other.identical;
+        identicalBytes += other.identicalBytes;
+        sourceMissing += other.sourceMissing;
+        return this;
+    }
+
+    public Duration elapsed() {
+        return Duration.ofNanos(System.nanoTime() - startNanos);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("缺失%d个（%.2fMB），不一致%d个（%.2fMB，其中仅分片ETag不同%d个），一致%d个（%.2fMB），源端不存在%d个，需要复制%d个共%.2fMB，耗时%ds",
+                missing, missingBytes / 1048576D, stale, staleBytes / 1048576D, staleMultipartEtag,
+                identical, identicalBytes / 1048576D, sourceMissing,
+                missing + stale, (missingBytes + staleBytes) / 1048576D, elapsed().toSeconds());
+    }
+
+}
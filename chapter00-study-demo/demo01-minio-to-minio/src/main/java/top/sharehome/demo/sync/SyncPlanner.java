@@ -0,0 +1,182 @@
+package top.sharehome.demo.sync;
+
+import com.google.common.collect.Iterators;
+import com.google.common.collect.PeekingIterator;
+import io.minio.ListObjectsArgs;
+import io.minio.MinioClient;
+import io.minio.errors.ErrorResponseException;
+import io.minio.messages.Item;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import top.sharehome.demo.config.SyncProperties;
+
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * 同步计划器（试运行）
+ * 不复制任何对象，只统计同步会复制多少对象和字节：
+ * 1、数据库路径按字节序排序后逐行读出，同一个桶的路径是连续的，按桶切分成窗口；
+ * 2、每个桶的源端和目标端同时列举，列举按前缀分片（先按"/"列出前几层目录，再并行递归列举每个目录），
+ *    分片按顺序拼接，结果仍然按对象名称有序；
+ * 3、三个有序数据流做归并连接，统计缺失、不一致和一致的对象数及字节数；
+ * 任何一方都不会整体加载进内存，内存中只有每个分片的一页列举结果
+ *
+ * @author AntonyCheng
+ */
+@Component
+@Slf4j
+public class SyncPlanner {
+
+    @Resource
+    private SyncProperties syncProperties;
+
+    @Resource
+    private MinioClientRegistry minioClientRegistry;
+
+    /**
+     * 生成同步计划
+     *
+     * @param sortedPaths 按字节序排序的待同步路径
+     */
+    public Mono<SyncPlan> plan(Flux<String> sortedPaths) {
+        return sortedPaths
+                .distinctUntilChanged()
+                .map(path -> SyncTask.of(path, null))
+                // 非法路径没有桶名称，不参与计划，同步时会记入非法路径报告
+                .filter(SyncTask::isValid)
+                // 路径按字节序排序时，同一个桶的路径（"/桶名称/"前缀）一定是连续的
+                .windowUntilChanged(SyncTask::getBucketName)
+                .concatMap(window -> window.switchOnFirst((first, tasks) -> first.hasValue()
+                        ? planBucket(first.get().getBucketName(), tasks).flux()
+                        : Flux.empty()))
+                .reduceWith(SyncPlan::new, SyncPlan::merge);
+    }
+
+    /**
+     * 归并连接一个桶的数据库路径、源端列举和目标端列举
+     */
+    private Mono<SyncPlan> planBucket(String bucketName, Flux<SyncTask> tasks) {
+        int batch = syncProperties.getPlan().getBatchSize();
+        return Mono.fromCallable(() -> {
+                    SyncPlan plan = new SyncPlan();
+                    PeekingIterator<Item> source = Iterators.peekingIterator(list(minioClientRegistry.source(), bucketName, false).toIterable(batch).iterator());
+                    // 目标端列举带上用户元数据，分片上传的对象要靠记录的源对象ETag判断是否一致
+                    PeekingIterator<Item> destination = Iterators.peekingIterator(list(minioClientRegistry.destination(), bucketName, true).toIterable(batch).iterator());
+                    Iterator<SyncTask> keys = tasks.toIterable(batch).iterator();
+                    while (keys.hasNext()) {
+                        String objectName = keys.next().getObjectName();
+                        Item src = seek(source, objectName);
+                        Item dest = seek(destination, objectName);
+                        if (src == null) {
+                            plan.sourceMissing();
+                        } else if (dest == null) {
+                            plan.missing(src.size());
+                        } else {
+                            ObjectStat srcStat = stat(src);
+                            ObjectStat destStat = stat(dest);
+                            // 与复制时的判断（ObjectStat.matches）一致
+                            if (srcStat.matches(destStat)) {
+                                plan.identical(src.size());
+                            } else {
+                                boolean multipartEtagOnly = src.size() == dest.size()
+                                        && (StringUtils.contains(srcStat.etag(), '-') || StringUtils.contains(destStat.etag(), '-'));
+                                plan.stale(src.size(), multipartEtagOnly);
+                            }
+                        }
+                    }
+                    log.info("同步计划：桶{}，{}", bucketName, plan);
+                    return plan;
+                })
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * 把列举跳过所有小于objectName的对象，等于objectName时返回该对象，否则返回null
+     */
+    private static Item seek(PeekingIterator<Item> items, String objectName) {
+        while (items.hasNext() && compare(items.peek().objectName(), objectName) < 0) {
+            items.next();
+        }
+        if (items.hasNext() && items.peek().objectName().equals(objectName)) {
+            return items.next();
+        }
+        return null;
+    }
+
+    /**
+     * 按码点比较，与S3列举使用的UTF-8字节序一致（String.compareTo按UTF-16比较，增补字符的顺序不同）
+     */
+    static int compare(String a, String b) {
+        int i = 0;
+        int j = 0;
+        while (i < a.length() && j < b.length()) {
+            int ca = a.codePointAt(i);
+            int cb = b.codePointAt(j);
+            if (ca != cb) {
+                return Integer.compare(ca, cb);
+            }
+            i += Character.charCount(ca);
+            j += Character.charCount(cb);
+        }
+        return Integer.compare(a.length() - i, b.length() - j);
+    }
+
+    /**
+     * 列举结果转换为对象元数据，用户元数据中记录的源对象ETag（键可能带x-amz-meta-前缀，大小写不定）一并取出
+     */
+    private static ObjectStat stat(Item item) {
+        String sourceEtag = null;
+        Map<String, String> userMetadata = item.userMetadata();
+        if (userMetadata != null) {
+            for (Map.Entry<String, String> entry : userMetadata.entrySet()) {
+                if (ObjectStat.SOURCE_ETAG_METADATA.equalsIgnoreCase(StringUtils.removeStartIgnoreCase(entry.getKey(), "x-amz-meta-"))) {
+                    sourceEtag = entry.getValue();
+                    break;
+                }
+            }
+        }
+        return new ObjectStat(item.etag(), item.size(), sourceEtag, null);
+    }
+
+    /**
+     * 有序列举整个桶，前shardDepth层目录作为分片并行列举，桶不存在视为空桶
+     *
+     * @param userMetadata 是否带上用户元数据（MinIO扩展）
+     */
+    private Flux<Item> list(MinioClient client, String bucketName, boolean userMetadata) {
+        return shard(client, bucketName, "", syncProperties.getPlan().getShardDepth(), userMetadata)
+                .onErrorResume(e -> e instanceof ErrorResponseException ex && "NoSuchBucket".equals(ex.errorResponse().code()),
+                        e -> Flux.empty());
+    }
+
+    private Flux<Item> shard(MinioClient client, String bucketName, String prefix, int depth, boolean userMetadata) {
+        if (depth <= 0) {
+            return items(client, ListObjectsArgs.builder().bucket(bucketName).prefix(prefix).recursive(true).includeUserMetadata(userMetadata).build());
+        }
+        // 按"/"列举一层：对象原样输出，目录展开为子分片；flatMapSequential同时列举多个分片，但按原顺序输出
+        return items(client, ListObjectsArgs.builder().bucket(bucketName).prefix(prefix).delimiter("/").includeUserMetadata(userMetadata).build())
+                .flatMapSequential(item -> item.isDir()
+                        ? shard(client, bucketName, item.objectName(), depth - 1, userMetadata)
+                        : Flux.just(item), syncProperties.getPlan().getShardParallelism());
+    }
+
+    private static Flux<Item> items(MinioClient client, ListObjectsArgs args) {
+        // 列举结果按页懒加载，每个分片在自己的线程上翻页
+        return Flux.defer(() -> Flux.fromIterable(client.listObjects(args)))
+                .<Item>handle((result, sink) -> {
+                    try {
+                        sink.next(result.get());
+                    } catch (Exception e) {
+                        sink.error(e);
+                    }
+                })
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+}
@@ -0,0 +1,51 @@
+package top.sharehome.demo.sync;
+
+/**
+ * 同步进度快照
+ *
+ * @param elapsedSeconds      已运行秒数
+ * @param total               待同步总数，尚未统计完时为null
+ * @param processed           已处理数（复制+跳过+失败+非法路径）
+ * @param copied              已复制数
+ * @param skipped             已跳过数
+ * @param failed              失败数
+ * @param invalid             非法路径数
+ * @param retries             重试次数
+ * @param bytes               已复制字节数
+ * @param objectsPerSecond    平均每秒处理对象数
+ * @param megabytesPerSecond  平均每秒复制MB数
+ * @param inFlight            正在进行的传输数
+ * @param inFlightBytes       在途字节数
+ * @param concurrencyLimit    当前自适应并发上限
+ * @param p50Millis           小对象通道传输耗时p50（毫秒）
+ * @param p99Millis           小对象通道传输耗时p99（毫秒）
+ * @param etaSeconds          预计剩余秒数，总数未知时为null
+ * @author AntonyCheng
+ */
+public record SyncProgress(long elapsedSeconds,
+                           Long total,
+                           long processed,
+                           long copied,
+                           long skipped,
+                           long failed,
+                           long invalid,
+                           long retries,
+                           long bytes,
+                           double objectsPerSecond,
+                           double megabytesPerSecond,
+                           int inFlight,
+                           long inFlightBytes,
+                           int concurrencyLimit,
+                           double p50Millis,
+                           double p99Millis,
+                           Long etaSeconds) {
+
+    @Override
+    public String toString() {
+        return String.format("已处理%d/%s（复制%d，跳过%d，失败%d，非法%d，重试%d），%.2fMB，%.1f个/s，%.2fMB/s，在途%d个/%.1fMB，并发上限%d，p50=%.0fms，p99=%.0fms，预计剩余%s",
+                processed, total == null ? "?" : total, copied, skipped, failed, invalid, retries, bytes / 1048576D,
+                objectsPerSecond, megabytesPerSecond, inFlight, inFlightBytes / 1048576D, concurrencyLimit,
+                p50Millis, p99Millis, etaSeconds == null ? "?" : etaSeconds + "s");
+    }
+
+}
@@ -0,0 +1,52 @@
+package top.sharehome.demo.sync;
+
+import lombok.Getter;
+
+import java.time.Duration;
+
+/**
+ * 一次同步的汇总报告
+ *
+ * @author AntonyCheng
+ */
+@Getter
+public class SyncReport {
+
+    private final long startNanos = System.nanoTime();
+
+    private long copied;
+
+    private long skipped;
+
+    private long failed;
+
+    private long invalid;
+
+    private long bytes;
+
+    /**
+     * 累加单个路径的同步结果
+     */
+    public SyncReport add(SyncResult result) {
+        switch (result.status()) {
+            case COPIED -> copied++;
+            case SKIPPED -> skipped++;
+            case FAILED -> failed++;
+            case INVALID -> invalid++;
+        }
+        bytes += result.bytes();
+        return this;
+    }
+
+    public Duration elapsed() {
+        return Duration.ofNanos(System.nanoTime() - startNanos);
+    }
+
+    @Override
+    public String toString() {
+        long millis = Math.max(elapsed().toMillis(), 1);
+        return String.format("复制%d个，跳过%d个，失败%d个，非法路径%d个，共%.2fMB，耗时%ds，平均%.2fMB/s",
+                copied, skipped, failed, invalid, bytes / 1048576D, millis / 1000, bytes / 1048576D * 1000 / millis);
+    }
+
+}
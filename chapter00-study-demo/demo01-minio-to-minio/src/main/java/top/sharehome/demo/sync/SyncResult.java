@@ -0,0 +1,56 @@
+package top.sharehome.demo.sync;
+
+/**
+ * 单个路径的同步结果
+ *
+ * @param path   路径
+ * @param status 同步状态
+ * @param bytes  复制的字节数
+ * @author AntonyCheng
+ */
+public record SyncResult(String path, Status status, long bytes) {
+
+    public static SyncResult copied(String path, long bytes) {
+        return new SyncResult(path, Status.COPIED, Math.max(bytes, 0));
+    }
+
+    public static SyncResult skipped(String path) {
+        return new SyncResult(path, Status.SKIPPED, 0);
+    }
+
+    public static SyncResult failed(String path) {
+        return new SyncResult(path, Status.FAILED, 0);
+    }
+
+    public static SyncResult invalid(String path) {
+        return new SyncResult(path, Status.INVALID, 0);
+    }
+
+    /**
+     * 同步状态
+     */
+    public enum Status {
+
+        /**
+         * 已复制
+         */
+        COPIED,
+
+        /**
+         * 已同步过，跳过
+         */
+        SKIPPED,
+
+        /**
+         * 复制失败
+         */
+        FAILED,
+
+        /**
+         * 路径不合法，没有复制
+         */
+        INVALID
+
+    }
+
+}
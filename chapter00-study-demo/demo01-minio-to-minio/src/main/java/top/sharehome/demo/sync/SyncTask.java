@@ -0,0 +1,123 @@
+package top.sharehome.demo.sync;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 同步任务，即流水线中流动的单个待同步对象
+ *
+ * @author AntonyCheng
+ */
+@Data
+@Accessors(chain = true)
+public class SyncTask {
+
+    /**
+     * 文件类型：视频
+     */
+    public static final String FILE_TYPE_VIDEO = "2";
+
+    /**
+     * 文件保存路径
+     */
+    private String path;
+
+    /**
+     * 桶名称
+     */
+    private String bucketName;
+
+    /**
+     * 对象名称
+     */
+    private String objectName;
+
+    /**
+     * 文件类型【1.图片，2.视频】，可能为空
+     */
+    private String fileType;
+
+    /**
+     * 所在通道，分类前为null
+     */
+    private Lane lane;
+
+    /**
+     * 源对象元数据，分类时查询过才有值
+     */
+    private ObjectStat source;
+
+    /**
+     * 进行中的分片上传，大对象复制失败时保留，重试时继续上传
+     */
+    private MultipartUpload upload;
+
+    /**
+     * 已尝试次数
+     */
+    private int attempts;
+
+    /**
+     * 已经与源对象一致的目标端标识（扇出复制），重试时跳过
+     */
+    private Set<String> replicated = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 是否来自持续同步读到的修改行，源对象可能已被覆盖，不能只凭检查点跳过
+     */
+    private boolean changed;
+
+    /**
+     * 路径不合法的原因，合法路径为null；不合法时没有桶名称和对象名称
+     */
+    private String invalidReason;
+
+    /**
+     * 假设path是URI，形式为：/桶名称/文件路径.../文件本体
+     *
+     * @param path     路径
+     * @param fileType 文件类型
+     */
+    public static SyncTask of(String path, String fileType) {
+        SyncTask task = new SyncTask()
+                .setPath(path)
+                .setFileType(fileType);
+        //源文件路径（在数据流的map中解析，不能抛异常，否则整个数据流会终止，非法路径只记下原因，由流水线写入非法路径报告）
+        try {
+            ObjectPath objectPath = ObjectPath.parse(path);
+            task.setBucketName(objectPath.bucketName())
+                    .setObjectName(objectPath.objectName());
+        } catch (ObjectPath.InvalidPathException e) {
+            task.setInvalidReason(e.getMessage());
+        }
+        return task;
+    }
+
+    /**
+     * 路径是否合法
+     */
+    public boolean isValid() {
+        return invalidReason == null;
+    }
+
+    /**
+     * 同步通道
+     */
+    public enum Lane {
+
+        /**
+         * 小对象通道：高并发，单次请求复制
+         */
+        SMALL,
+
+        /**
+         * 大对象通道：低并发，分片并行上传
+         */
+        LARGE
+
+    }
+
+}
@@ -0,0 +1,61 @@
+package top.sharehome.demo.sync;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+
+/**
+ * 限速输入流，每次读取之后按读到的字节数向BandwidthLimiter申请令牌
+ *
+ * @author AntonyCheng
+ */
+public class ThrottledInputStream extends FilterInputStream {
+
+    private final BandwidthLimiter limiter;
+
+    private final String bucketName;
+
+    public ThrottledInputStream(InputStream in, BandwidthLimiter limiter, String bucketName) {
+        super(in);
+        this.limiter = limiter;
+        this.bucketName = bucketName;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b >= 0) {
+            throttle(1);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int n = super.read(b, off, len);
+        if (n > 0) {
+            throttle(n);
+        }
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = super.skip(n);
+        if (skipped > 0) {
+            throttle(skipped);
+        }
+        return skipped;
+    }
+
+    private void throttle(long bytes) throws InterruptedIOException {
+        try {
+            limiter.acquire(bucketName, bytes);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("限速等待被中断");
+        }
+    }
+
+}
@@ -0,0 +1,70 @@
+package top.sharehome.demo.sync;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 字节令牌桶
+ * 按GCRA（理论到达时间）实现：每次申请把理论到达时间向后推移"字节数/速率"，
+ * 超出突发容量（burst时间内的字节数）的部分需要等待，空闲时最多积累burst时间的令牌，
+ * 突发容量很小（默认100ms）时吞吐量是平滑的而不是一阵一阵的；速率可以在运行时修改，小于等于0表示不限速
+ *
+ * @author AntonyCheng
+ */
+public class TokenBucket {
+
+    private final long burstNanos;
+
+    private volatile long bytesPerSecond;
+
+    /**
+     * 理论到达时间
+     */
+    private long tatNanos = System.nanoTime();
+
+    public TokenBucket(long bytesPerSecond, long burstNanos) {
+        this.bytesPerSecond = bytesPerSecond;
+        this.burstNanos = burstNanos;
+    }
+
+    /**
+     * 预约字节数对应的令牌
+     *
+     * @return 需要等待的纳秒数，0表示不需要等待
+     */
+    public synchronized long reserve(long bytes) {
+        long rate = bytesPerSecond;
+        if (rate <= 0 || bytes <= 0) {
+            return 0;
+        }
+        long now = System.nanoTime();
+        tatNanos = Math.max(tatNanos, now) + (long) (bytes * 1_000_000_000D / rate);
+        return Math.max(tatNanos - now - burstNanos, 0);
+    }
+
+    /**
+     * 申请令牌，不足时阻塞
+     *
+     * @return 实际等待的纳秒数
+     */
+    public long acquire(long bytes) throws InterruptedException {
+        long waitNanos = reserve(bytes);
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+        return waitNanos;
+    }
+
+    public long getBytesPerSecond() {
+        return bytesPerSecond;
+    }
+
+    /**
+     * 修改速率，之后的申请按新速率计算
+     */
+    public synchronized void setBytesPerSecond(long bytesPerSecond) {
+        this.bytesPerSecond = bytesPerSecond;
+        // 从不限速切换到限速时，不让之前积压的理论到达时间影响新速率
+        tatNanos = Math.min(tatNanos, System.nanoTime());
+    }
+
+}
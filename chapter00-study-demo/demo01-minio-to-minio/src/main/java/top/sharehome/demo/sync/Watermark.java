@@ -0,0 +1,48 @@
+package top.sharehome.demo.sync;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Date;
+
+/**
+ * 增量读取的水位线（时间，主键），按时间和主键组成的游标分页，保证同一时间的多行不会遗漏
+ * 持久化为单行文本：时间毫秒数\t主键
+ *
+ * @param time 时间
+ * @param id   主键（同一时间内）
+ * @author AntonyCheng
+ */
+public record Watermark(Date time, long id) {
+
+    /**
+     * 读取水位线文件，文件不存在或内容不完整时返回null
+     */
+    public static Watermark load(String file) throws IOException {
+        Path path = Path.of(file);
+        if (!Files.exists(path)) {
+            return null;
+        }
+        String[] fields = Files.readString(path, StandardCharsets.UTF_8).trim().split("\t");
+        if (fields.length != 2) {
+            return null;
+        }
+        return new Watermark(new Date(Long.parseLong(fields[0])), Long.parseLong(fields[1]));
+    }
+
+    /**
+     * 保存水位线，先写临时文件再原子替换，崩溃时不会留下写了一半的水位线
+     */
+    public void save(String file) throws IOException {
+        Path path = Path.of(file);
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        Path temp = Path.of(file + ".tmp");
+        Files.writeString(temp, time.getTime() + "\t" + id, StandardCharsets.UTF_8);
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+}
@@ -0,0 +1,154 @@
+package top.sharehome.demo.benchmark;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+/**
+ * 执行方式对比：并行调度器、有界弹性线程池、虚拟线程+信号量
+ * 每个任务模拟一次对象复制：一次STAT和一次GET各阻塞latency毫秒（模拟网络往返），再把objectKb大小的数据按8KB缓冲区拷贝一遍，
+ * 输出每秒对象数、每秒MB数和峰值平台线程数；每个并发上限下三种方式的含义为：
+ * 1、并行调度器：固定36个线程，即改造前SyncFiles的newParallel("sync", 36)，flatMap并发为并发上限，阻塞调用直接占住它的线程，
+ *    实际同时阻塞的调用数始终不超过36；
+ * 2、有界弹性线程池：线程数和flatMap并发都为并发上限；
+ * 3、虚拟线程+信号量：信号量许可数（即SyncPipeline的max-blocking）为并发上限，flatMap并发为它的4倍，
+ *    在途任务多于许可，信号量真正起到限制作用，与SyncPipeline中flatMap并发高于max-blocking时的行为一致
+ * 这是执行方式的模型，不是同步管道的基准测试：不经过SyncPipeline、MinIO客户端和网络，只比较三种调度方式在阻塞调用下的线程占用和吞吐；
+ * 并行调度器已经从SyncPipeline中移除，无法再走真实管道测量，ELASTIC和VIRTUAL走真实管道的结果见SyncThroughputBenchmark的
+ * STREAMING+LANES和STREAMING+VIRTUAL两行
+ * 运行方式（Java 21）：在IDE中运行main方法，或：
+ * mvn -pl chapter00-study-demo/demo01-minio-to-minio test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test "-Dexec.args=-cp %classpath top.sharehome.demo.benchmark.ExecutionModeBenchmark 20000 20 256 36,256,1024"
+ * 参数依次为：任务数 延迟毫秒 对象KB 并发上限（逗号分隔）
+ *
+ * @author AntonyCheng
+ */
+public class ExecutionModeBenchmark {
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    /**
+     * 改造前SyncFiles并行调度器的线程数
+     */
+    private static final int PARALLEL_THREADS = 36;
+
+    /**
+     * 虚拟线程方式flatMap并发与信号量许可数之比
+     */
+    private static final int VIRTUAL_IN_FLIGHT_FACTOR = 4;
+
+    public static void main(String[] args) {
+        int tasks = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        long latency = args.length > 1 ? Long.parseLong(args[1]) : 20;
+        int objectKb = args.length > 2 ? Integer.parseInt(args[2]) : 256;
+        String caps = args.length > 3 ? args[3] : "36,256,1024";
+        byte[] object = new byte[objectKb * 1024];
+
+        System.out.printf("任务数=%d，延迟=%dms，对象=%dKB%n", tasks, latency, objectKb);
+        System.out.printf("%-10s%8s%10s%10s%14s%12s%14s%12s%n", "方式", "并发", "阻塞上限", "在途上限", "对象/秒", "MB/秒", "峰值平台线程", "耗时ms");
+        for (String cap : caps.split(",")) {
+            int concurrency = Integer.parseInt(cap.trim());
+            for (Mode mode : Mode.values()) {
+                // 预热一轮（JIT和线程创建），不计入结果
+                run(mode, concurrency, Math.max(concurrency, tasks / 10), latency, object);
+                Result result = run(mode, concurrency, tasks, latency, object);
+                System.out.printf("%-10s%8d%10d%10d%14.1f%12.1f%14d%12d%n", mode, concurrency,
+                        mode.blocking(concurrency), mode.inFlight(concurrency),
+                        tasks * 1000D / result.millis, (double) tasks * object.length / 1048576D * 1000D / result.millis,
+                        result.peakThreads, result.millis);
+            }
+        }
+    }
+
+    private static Result run(Mode mode, int concurrency, int tasks, long latency, byte[] object) {
+        Scheduler scheduler = mode.scheduler(concurrency);
+        Semaphore permits = mode == Mode.VIRTUAL ? new Semaphore(mode.blocking(concurrency)) : null;
+        try {
+            THREADS.resetPeakThreadCount();
+            long start = System.nanoTime();
+            Flux.range(0, tasks)
+                    .flatMap(i -> Mono.fromCallable(() -> transfer(permits, latency, object)).subscribeOn(scheduler), mode.inFlight(concurrency))
+                    .then()
+                    .block();
+            return new Result(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), THREADS.getPeakThreadCount());
+        } finally {
+            scheduler.dispose();
+        }
+    }
+
+    /**
+     * 模拟一次对象复制，与SyncPipeline相同：虚拟线程方式先获取信号量许可
+     */
+    private static long transfer(Semaphore permits, long latency, byte[] object) throws Exception {
+        if (permits != null) {
+            permits.acquire();
+        }
+        try {
+            // STAT
+            Thread.sleep(latency);
+            // GET首字节
+            Thread.sleep(latency);
+            // 按8KB缓冲区读出（ByteArrayInputStream.transferTo会一次写出整个数组，不能代表逐块复制）
+            byte[] buffer = new byte[8192];
+            long total = 0;
+            try (InputStream in = new ByteArrayInputStream(object)) {
+                int n;
+                while ((n = in.read(buffer)) > 0) {
+                    total += n;
+                }
+            }
+            return total;
+        } finally {
+            if (permits != null) {
+                permits.release();
+            }
+        }
+    }
+
+    private record Result(long millis, int peakThreads) {
+    }
+
+    private enum Mode {
+
+        PARALLEL(concurrency -> Schedulers.newParallel("bench-parallel", PARALLEL_THREADS)),
+
+        ELASTIC(concurrency -> Schedulers.newBoundedElastic(concurrency, Integer.MAX_VALUE, "bench-elastic")),
+
+        VIRTUAL(concurrency -> Schedulers.fromExecutorService(Executors.newVirtualThreadPerTaskExecutor(), "bench-virtual"));
+
+        private final IntFunction<Scheduler> factory;
+
+        Mode(IntFunction<Scheduler> factory) {
+            this.factory = factory;
+        }
+
+        Scheduler scheduler(int concurrency) {
+            return factory.apply(concurrency);
+        }
+
+        /**
+         * 同时阻塞的调用数上限：并行调度器为固定线程数，有界弹性线程池为线程数，虚拟线程为信号量许可数
+         */
+        int blocking(int concurrency) {
+            return this == PARALLEL ? PARALLEL_THREADS : concurrency;
+        }
+
+        /**
+         * flatMap并发，即同时在途的任务数上限
+         */
+        int inFlight(int concurrency) {
+            return this == VIRTUAL ? concurrency * VIRTUAL_IN_FLIGHT_FACTOR : concurrency;
+        }
+
+    }
+
+}
@@ -0,0 +1,104 @@
+package top.sharehome.demo.benchmark;
+
+import top.sharehome.demo.model.entity.SpecieDataFile;
+import top.sharehome.demo.sync.SyncTask;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 按种子生成的假specie_data_file数据集，同一种子每次生成的行和对象完全相同
+ * 大小分布参照红外相机数据：约90%为照片，大小服从对数正态分布（中位数约1.2MB，30KB~12MB）；
+ * 约10%为视频（中位数约24MB，1MB~256MB）；路径形式为/xgadmin/相机编号/日期/主键.jpg(.mp4)
+ *
+ * @author AntonyCheng
+ */
+public class FakeSpecieDataset {
+
+    private static final String BUCKET = "xgadmin";
+
+    private static final long KB = 1024L;
+
+    private static final long MB = 1024L * 1024L;
+
+    private final List<Row> rows;
+
+    /**
+     * 数据集中的一行
+     *
+     * @param file 数据库行
+     * @param size 对象大小
+     * @param seed 对象内容种子
+     */
+    public record Row(SpecieDataFile file, long size, long seed) {
+    }
+
+    private FakeSpecieDataset(List<Row> rows) {
+        this.rows = rows;
+    }
+
+    /**
+     * 生成数据集
+     *
+     * @param count 行数
+     * @param seed  种子
+     */
+    public static FakeSpecieDataset generate(int count, long seed) {
+        Random random = new Random(seed);
+        LocalDate day = LocalDate.of(2023, 6, 1);
+        List<Row> rows = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            boolean video = random.nextDouble() < 0.1;
+            long size = video
+                    ? logNormal(random, 24 * MB, 0.7, MB, 256 * MB)
+                    : logNormal(random, 1200 * KB, 0.6, 30 * KB, 12 * MB);
+            long id = 1_700_000_000_000L + i;
+            String path = "/" + BUCKET + "/camera-" + String.format("%03d", random.nextInt(40))
+                    + "/" + day.plusDays(random.nextInt(180)) + "/" + id + (video ? ".mp4" : ".jpg");
+            SpecieDataFile file = new SpecieDataFile()
+                    .setSpecieDataFileId(id)
+                    .setPath(path)
+                    .setFileType(video ? SyncTask.FILE_TYPE_VIDEO : "1")
+                    .setDelFlag("0");
+            rows.add(new Row(file, size, random.nextLong()));
+        }
+        return new FakeSpecieDataset(rows);
+    }
+
+    /**
+     * 把对象放入源端替身服务（需要为每个对象计算一遍MD5，数据集较大时较慢）
+     */
+    public void seed(LocalS3Server source) {
+        rows.parallelStream().forEach(row -> {
+            SyncTask task = SyncTask.of(row.file().getPath(), row.file().getFileType());
+            source.seed(task.getBucketName(), task.getObjectName(), row.size(), row.seed(),
+                    SyncTask.FILE_TYPE_VIDEO.equals(row.file().getFileType()) ? "video/mp4" : "image/jpeg");
+        });
+    }
+
+    public List<Row> rows() {
+        return rows;
+    }
+
+    /**
+     * 对象总字节数
+     */
+    public long totalBytes() {
+        return rows.stream().mapToLong(Row::size).sum();
+    }
+
+    /**
+     * 视频行数
+     */
+    public long videos() {
+        return rows.stream().filter(row -> SyncTask.FILE_TYPE_VIDEO.equals(row.file().getFileType())).count();
+    }
+
+    private static long logNormal(Random random, long median, double sigma, long min, long max) {
+        long size = Math.round(median * Math.exp(sigma * random.nextGaussian()));
+        return Math.max(min, Math.min(max, size));
+    }
+
+}
@@ -0,0 +1,430 @@
+package top.sharehome.demo.benchmark;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import top.sharehome.demo.sync.TokenBucket;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 本地S3替身服务
+ * 基于JDK HttpServer，只实现同步用到的S3接口（路径风格、不校验签名）：
+ * GetBucketLocation、HEAD/GET（支持Range和If-Match）/PUT/DELETE对象、分片上传（初始化、上传分片、合并、放弃），
+ * 服务端复制（x-amz-copy-source）返回NotImplemented，同步会回退到流式复制；
+ * 源端对象不保存内容，按种子生成（每64KB重复一个随机块），目标端只保存大小和ETag，内存占用与对象大小无关；
+ * 网络模型：每个请求先等待固定延迟（首字节时间），响应体和请求体按单连接带宽和全局带宽（令牌桶）限速
+ *
+ * @author AntonyCheng
+ */
+public class LocalS3Server implements AutoCloseable {
+
+    private static final int BLOCK = 64 * 1024;
+
+    private static final Pattern ETAG = Pattern.compile("<ETag>\"?([0-9a-fA-F]+)\"?</ETag>");
+
+    private static final Pattern RANGE = Pattern.compile("bytes=(\\d+)-(\\d*)");
+
+    private static final String XMLNS = "http://s3.amazonaws.com/doc/2006-03-01/";
+
+    private final Model model;
+
+    private final TokenBucket totalBandwidth;
+
+    private final HttpServer server;
+
+    /**
+     * 桶名称/对象名称 -> 对象
+     */
+    private final Map<String, StoredObject> objects = new ConcurrentHashMap<>();
+
+    /**
+     * uploadId -> 分片号 -> 分片
+     */
+    private final Map<String, ConcurrentSkipListMap<Integer, StoredObject>> uploads = new ConcurrentHashMap<>();
+
+    private final AtomicLong requests = new AtomicLong();
+
+    /**
+     * 网络模型
+     *
+     * @param latency                每个请求的首字节延迟
+     * @param connectionBytesPerSecond 单连接带宽（字节/秒），0表示不限
+     * @param totalBytesPerSecond      全局带宽（字节/秒，上下行合计），0表示不限
+     */
+    public record Model(Duration latency, long connectionBytesPerSecond, long totalBytesPerSecond) {
+    }
+
+    /**
+     * 对象：seed不为null时内容可按种子生成（源端），否则只有大小和ETag（目标端），分片上传的对象另记各分片大小用于核对内容
+     */
+    private record StoredObject(long size, String etag, String contentType, Long seed, List<Long> partSizes) {
+
+        StoredObject(long size, String etag, String contentType, Long seed) {
+            this(size, etag, contentType, seed, null);
+        }
+
+    }
+
+    public LocalS3Server(Model model) throws IOException {
+        this.model = model;
+        this.totalBandwidth = model.totalBytesPerSecond() > 0 ? new TokenBucket(model.totalBytesPerSecond(), TimeUnit.MILLISECONDS.toNanos(10)) : null;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1024);
+        this.server.createContext("/", this::handle);
+        // 替身服务本身不限制并发；不用虚拟线程：HttpServer在synchronized中写套接字，虚拟线程写阻塞时会占住载体线程，
+        // 单核机器上只有一个载体线程，源端GET写满缓冲区后目标端请求再也得不到调度，同步就会卡死
+        this.server.setExecutor(Executors.newCachedThreadPool());
+        this.server.start();
+    }
+
+    /**
+     * 端点地址，例如http://127.0.0.1:54321
+     */
+    public String endpoint() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    /**
+     * 放入一个按种子生成内容的对象，ETag为内容的MD5（需要生成一遍内容）
+     */
+    public void seed(String bucketName, String objectName, long size, long seed, String contentType) {
+        String etag = HexFormat.of().formatHex(digest(block(seed), 0, size));
+        objects.put(bucketName + "/" + objectName, new StoredObject(size, etag, contentType, seed));
+    }
+
+    /**
+     * 本服务（目标端）中的对象是否与source（源端）中的同名对象内容一致
+     * 按源端的种子重新生成内容：单次上传的对象比较整个对象的MD5，
+     * 分片上传的对象按本服务记录的分片边界逐片计算MD5，拼出分片上传的ETag再比较
+     *
+     * @return 任一端缺少对象、大小或内容不一致时返回false
+     */
+    public boolean matches(LocalS3Server source, String bucketName, String objectName) {
+        String key = bucketName + "/" + objectName;
+        StoredObject expected = source.objects.get(key);
+        StoredObject actual = objects.get(key);
+        if (expected == null || actual == null || expected.seed() == null || expected.size() != actual.size()) {
+            return false;
+        }
+        if (actual.partSizes() == null) {
+            return expected.etag().equals(actual.etag());
+        }
+        byte[] block = block(expected.seed());
+        MessageDigest md5 = md5();
+        long pos = 0;
+        for (long partSize : actual.partSizes()) {
+            md5.update(digest(block, pos, partSize));
+            pos += partSize;
+        }
+        return (HexFormat.of().formatHex(md5.digest()) + "-" + actual.partSizes().size()).equals(actual.etag());
+    }
+
+    /**
+     * 对象数
+     */
+    public int objectCount() {
+        return objects.size();
+    }
+
+    /**
+     * 对象大小，不存在返回-1
+     */
+    public long size(String bucketName, String objectName) {
+        StoredObject object = objects.get(bucketName + "/" + objectName);
+        return object == null ? -1 : object.size();
+    }
+
+    /**
+     * 已处理的请求数
+     */
+    public long requests() {
+        return requests.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        ((ExecutorService) server.getExecutor()).shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        try (exchange) {
+            if (!model.latency().isZero()) {
+                Thread.sleep(model.latency().toMillis());
+            }
+            String rawPath = exchange.getRequestURI().getRawPath();
+            String path = URLDecoder.decode(rawPath.substring(1), StandardCharsets.UTF_8);
+            int slash = path.indexOf('/');
+            String bucketName = slash < 0 ? path : path.substring(0, slash);
+            String objectName = slash < 0 ? "" : path.substring(slash + 1);
+            Map<String, String> query = query(exchange.getRequestURI().getRawQuery());
+            String method = exchange.getRequestMethod();
+            if (objectName.isEmpty()) {
+                if ("GET".equals(method) && query.containsKey("location")) {
+                    xml(exchange, 200, "<LocationConstraint xmlns=\"" + XMLNS + "\"></LocationConstraint>");
+                } else if ("HEAD".equals(method)) {
+                    exchange.sendResponseHeaders(200, -1);
+                } else {
+                    error(exchange, 501, "NotImplemented", rawPath);
+                }
+                return;
+            }
+            String key = bucketName + "/" + objectName;
+            switch (method) {
+                case "HEAD", "GET" -> getObject(exchange, key, "HEAD".equals(method));
+                case "PUT" -> {
+                    if (exchange.getRequestHeaders().containsKey("x-amz-copy-source")) {
+                        error(exchange, 501, "NotImplemented", rawPath);
+                    } else if (query.containsKey("partNumber")) {
+                        uploadPart(exchange, query.get("uploadId"), Integer.parseInt(query.get("partNumber")));
+                    } else {
+                        putObject(exchange, key);
+                    }
+                }
+                case "POST" -> {
+                    if (query.containsKey("uploads")) {
+                        String uploadId = UUID.randomUUID().toString();
+                        uploads.put(uploadId, new ConcurrentSkipListMap<>());
+                        xml(exchange, 200, "<InitiateMultipartUploadResult xmlns=\"" + XMLNS + "\"><Bucket>" + bucketName + "</Bucket><Key>"
+                                + escape(objectName) + "</Key><UploadId>" + uploadId + "</UploadId></InitiateMultipartUploadResult>");
+                    } else if (query.containsKey("uploadId")) {
+                        completeUpload(exchange, key, bucketName, objectName, query.get("uploadId"));
+                    } else {
+                        error(exchange, 501, "NotImplemented", rawPath);
+                    }
+                }
+                case "DELETE" -> {
+                    if (query.containsKey("uploadId")) {
+                        uploads.remove(query.get("uploadId"));
+                    } else {
+                        objects.remove(key);
+                    }
+                    exchange.sendResponseHeaders(204, -1);
+                }
+                default -> error(exchange, 405, "MethodNotAllowed", rawPath);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            error(exchange, 500, "InternalError", exchange.getRequestURI().getRawPath());
+        }
+    }
+
+    private void getObject(HttpExchange exchange, String key, boolean head) throws IOException, InterruptedException {
+        StoredObject object = objects.get(key);
+        if (object == null) {
+            if (head) {
+                exchange.sendResponseHeaders(404, -1);
+            } else {
+                error(exchange, 404, "NoSuchKey", "/" + key);
+            }
+            return;
+        }
+        String ifMatch = exchange.getRequestHeaders().getFirst("If-Match");
+        if (ifMatch != null && !ifMatch.replace("\"", "").equals(object.etag())) {
+            error(exchange, 412, "PreconditionFailed", "/" + key);
+            return;
+        }
+        long from = 0;
+        long length = object.size();
+        int status = 200;
+        String range = exchange.getRequestHeaders().getFirst("Range");
+        Matcher matcher = range == null ? null : RANGE.matcher(range);
+        if (matcher != null && matcher.matches()) {
+            from = Long.parseLong(matcher.group(1));
+            long to = matcher.group(2).isEmpty() ? object.size() - 1 : Math.min(Long.parseLong(matcher.group(2)), object.size() - 1);
+            length = to - from + 1;
+            status = 206;
+            exchange.getResponseHeaders().set("Content-Range", "bytes " + from + "-" + to + "/" + object.size());
+        }
+        exchange.getResponseHeaders().set("ETag", "\"" + object.etag() + "\"");
+        exchange.getResponseHeaders().set("Content-Type", object.contentType() == null ? "application/octet-stream" : object.contentType());
+        exchange.getResponseHeaders().set("Last-Modified", DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.now(ZoneOffset.UTC)));
+        exchange.getResponseHeaders().set("Accept-Ranges", "bytes");
+        if (head) {
+            exchange.getResponseHeaders().set("Content-Length", String.valueOf(object.size()));
+            exchange.sendResponseHeaders(200, -1);
+            return;
+        }
+        if (object.seed() == null) {
+            error(exchange, 501, "NotImplemented", "/" + key);
+            return;
+        }
+        exchange.sendResponseHeaders(status, length == 0 ? -1 : length);
+        byte[] block = block(object.seed());
+        long start = System.nanoTime();
+        try (OutputStream out = exchange.getResponseBody()) {
+            for (long pos = from, sent = 0; sent < length; ) {
+                int offset = (int) (pos % BLOCK);
+                int n = (int) Math.min(BLOCK - offset, length - sent);
+                pace(start, sent, n);
+                out.write(block, offset, n);
+                pos += n;
+                sent += n;
+            }
+        }
+    }
+
+    private void putObject(HttpExchange exchange, String key) throws IOException, InterruptedException {
+        StoredObject object = receive(exchange);
+        objects.put(key, new StoredObject(object.size(), object.etag(), exchange.getRequestHeaders().getFirst("Content-Type"), null));
+        exchange.getResponseHeaders().set("ETag", "\"" + object.etag() + "\"");
+        exchange.sendResponseHeaders(200, -1);
+    }
+
+    private void uploadPart(HttpExchange exchange, String uploadId, int partNumber) throws IOException, InterruptedException {
+        ConcurrentSkipListMap<Integer, StoredObject> parts = uploads.get(uploadId);
+        if (parts == null) {
+            error(exchange, 404, "NoSuchUpload", uploadId);
+            return;
+        }
+        StoredObject part = receive(exchange);
+        parts.put(partNumber, part);
+        exchange.getResponseHeaders().set("ETag", "\"" + part.etag() + "\"");
+        exchange.sendResponseHeaders(200, -1);
+    }
+
+    private void completeUpload(HttpExchange exchange, String key, String bucketName, String objectName, String uploadId) throws IOException {
+        ConcurrentSkipListMap<Integer, StoredObject> parts = uploads.remove(uploadId);
+        if (parts == null) {
+            error(exchange, 404, "NoSuchUpload", uploadId);
+            return;
+        }
+        String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+        // 分片上传的ETag：各分片MD5拼接后的MD5加"-分片数"
+        MessageDigest md5 = md5();
+        long size = 0;
+        List<Long> partSizes = new ArrayList<>(parts.size());
+        Matcher matcher = ETAG.matcher(body);
+        for (StoredObject part : parts.values()) {
+            if (!matcher.find() || !matcher.group(1).equalsIgnoreCase(part.etag())) {
+                error(exchange, 400, "InvalidPart", uploadId);
+                return;
+            }
+            md5.update(HexFormat.of().parseHex(part.etag()));
+            size += part.size();
+            partSizes.add(part.size());
+        }
+        String etag = HexFormat.of().formatHex(md5.digest()) + "-" + partSizes.size();
+        objects.put(key, new StoredObject(size, etag, null, null, partSizes));
+        xml(exchange, 200, "<CompleteMultipartUploadResult xmlns=\"" + XMLNS + "\"><Location>" + endpoint() + "/" + escape(key) + "</Location><Bucket>"
+                + bucketName + "</Bucket><Key>" + escape(objectName) + "</Key><ETag>\"" + etag + "\"</ETag></CompleteMultipartUploadResult>");
+    }
+
+    /**
+     * 按限速读完请求体，只计算大小和MD5，不保存内容
+     */
+    private StoredObject receive(HttpExchange exchange) throws IOException, InterruptedException {
+        MessageDigest md5 = md5();
+        byte[] buffer = new byte[BLOCK];
+        long size = 0;
+        long start = System.nanoTime();
+        try (InputStream in = exchange.getRequestBody()) {
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                pace(start, size, n);
+                md5.update(buffer, 0, n);
+                size += n;
+            }
+        }
+        return new StoredObject(size, HexFormat.of().formatHex(md5.digest()), null, null);
+    }
+
+    /**
+     * 传输n字节前限速：全局令牌桶，加上单连接按已传输字节数计算的最早时间
+     */
+    private void pace(long startNanos, long transferred, int n) throws InterruptedException {
+        if (totalBandwidth != null) {
+            totalBandwidth.acquire(n);
+        }
+        if (model.connectionBytesPerSecond() > 0) {
+            long due = startNanos + (transferred + n) * 1_000_000_000L / model.connectionBytesPerSecond();
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            }
+        }
+    }
+
+    private static void xml(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = ("<?xml version=\"1.0\" encoding=\"UTF-8\"?>" + body).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/xml");
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
+    private static void error(HttpExchange exchange, int status, String code, String resource) throws IOException {
+        xml(exchange, status, "<Error><Code>" + code + "</Code><Message>" + code + "</Message><Resource>" + escape(resource)
+                + "</Resource><RequestId>local</RequestId><HostId>local</HostId></Error>");
+    }
+
+    private static Map<String, String> query(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery != null) {
+            for (String pair : rawQuery.split("&")) {
+                int eq = pair.indexOf('=');
+                query.put(eq < 0 ? pair : pair.substring(0, eq),
+                        eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return query;
+    }
+
+    private static byte[] block(long seed) {
+        byte[] block = new byte[BLOCK];
+        new Random(seed).nextBytes(block);
+        return block;
+    }
+
+    /**
+     * 按种子生成的内容中[from, from + length)区间的MD5
+     */
+    private static byte[] digest(byte[] block, long from, long length) {
+        MessageDigest md5 = md5();
+        for (long pos = from, end = from + length; pos < end; ) {
+            int offset = (int) (pos % BLOCK);
+            int n = (int) Math.min(BLOCK - offset, end - pos);
+            md5.update(block, offset, n);
+            pos += n;
+        }
+        return md5.digest();
+    }
+
+    private static MessageDigest md5() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String escape(String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+    }
+
+}
@@ -0,0 +1,102 @@
+package top.sharehome.demo.benchmark;
+
+import org.apache.commons.lang3.StringUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import top.sharehome.demo.sync.ObjectPath;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 路径解析基准测试（JMH）：改造前SyncTask.of中的indexOf/substring解析与ObjectPath.parse对比
+ * 路径来自FakeSpecieDataset，mixed数据集中每16条混入1条非法路径（桶名称大写、缺少对象名称、目录、空路径段），
+ * 改造前的解析对非法路径不报错，照样拆出桶名称和对象名称（或退回默认值）
+ * 运行方式：在IDE中直接运行main方法（JMH注解处理器需要在编译时生成基准代码），或：
+ * mvn -pl chapter00-study-demo/demo01-minio-to-minio test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test "-Dexec.args=-cp %classpath top.sharehome.demo.benchmark.PathParserBenchmark"
+ * 不能用exec:java：JMH在新的JVM中运行基准，子JVM的类路径取自java.class.path，看不到exec:java的类加载器
+ * 结果为每条路径的平均耗时，配合-prof gc可以看到每条路径的分配字节数
+ *
+ * @author AntonyCheng
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@OperationsPerInvocation(PathParserBenchmark.PATHS)
+public class PathParserBenchmark {
+
+    static final int PATHS = 4096;
+
+    private static final String[] INVALID = {"/XgAdmin/camera-001/a.jpg", "/xgadmin", "/xgadmin/camera-001/", "/xgadmin//camera-001/a.jpg"};
+
+    @Param({"valid", "mixed"})
+    private String dataset;
+
+    private String[] paths;
+
+    @Setup
+    public void setup() {
+        paths = FakeSpecieDataset.generate(PATHS, 42).rows().stream()
+                .map(row -> row.file().getPath())
+                .toArray(String[]::new);
+        if ("mixed".equals(dataset)) {
+            for (int i = 0; i < PATHS; i += 16) {
+                paths[i] = INVALID[(i / 16) % INVALID.length];
+            }
+        }
+    }
+
+    @Benchmark
+    public void legacy(Blackhole blackhole) {
+        for (String path : paths) {
+            String bucketName = "demo_bucket";
+            String objectName = "object_name";
+            if (StringUtils.isNotBlank(path)) {
+                int startIndex = path.indexOf("/") + 1;
+                int endIndex = path.indexOf("/", startIndex);
+                if (endIndex > startIndex) {
+                    bucketName = path.substring(startIndex, endIndex);
+                    objectName = path.substring(endIndex + 1);
+                }
+            }
+            blackhole.consume(bucketName);
+            blackhole.consume(objectName);
+        }
+    }
+
+    @Benchmark
+    public void objectPath(Blackhole blackhole) {
+        for (String path : paths) {
+            try {
+                ObjectPath objectPath = ObjectPath.parse(path);
+                blackhole.consume(objectPath.bucketName());
+                blackhole.consume(objectPath.objectName());
+            } catch (ObjectPath.InvalidPathException e) {
+                blackhole.consume(e.getMessage());
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(PathParserBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+
+}
@@ -0,0 +1,160 @@
+package top.sharehome.demo.benchmark;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import reactor.core.publisher.Flux;
+import top.sharehome.demo.DemoApplication;
+import top.sharehome.demo.sync.SyncPipeline;
+import top.sharehome.demo.sync.SyncReport;
+import top.sharehome.demo.sync.SyncTask;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 端到端同步吞吐量基准测试
+ * 启动两个本地S3替身服务（源端放入按种子生成的假数据集，目标端为空），用真实的Spring上下文和SyncPipeline
+ * 按每种复制方式各同步一遍整个数据集（每种方式使用新的目标端），输出每秒对象数、每秒MB数和堆内存峰值，
+ * 并按源端种子核对目标端每个对象的大小和内容；数据集和网络模型固定时结果可重复，可以在笔记本或CI上发现同步路径的性能回退
+ * 不需要数据库：任务直接由数据集生成，不经过SyncFiles（启动时同步通过sync.run-on-startup=false关闭）
+ * 运行方式（Java 21）：SyncThroughputBenchmarkTest随mvn test以小数据集运行，目标端缺少对象或内容不一致时测试失败；
+ * 完整数据集在IDE中运行main方法，或：
+ * mvn -pl chapter00-study-demo/demo01-minio-to-minio test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test "-Dexec.args=-cp %classpath top.sharehome.demo.benchmark.SyncThroughputBenchmark 500 42 5 100 1000"
+ * 参数依次为：对象数 种子 延迟毫秒 单连接MB/s 全局MB/s，核对失败时以非0退出码结束
+ * STREAMING+LANES和STREAMING+VIRTUAL只有执行方式不同（有界弹性线程池和虚拟线程），是两种执行方式走真实管道的对比，
+ * 脱离管道的执行方式模型见ExecutionModeBenchmark
+ * 堆内存峰值为各堆内存池峰值之和，包含替身服务本身（只保存元数据，每个请求64KB缓冲），每种方式开始前会先GC
+ *
+ * @author AntonyCheng
+ */
+public class SyncThroughputBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 42;
+        long latency = args.length > 2 ? Long.parseLong(args[2]) : 5;
+        long connectionMb = args.length > 3 ? Long.parseLong(args[3]) : 100;
+        long totalMb = args.length > 4 ? Long.parseLong(args[4]) : 1000;
+        LocalS3Server.Model model = new LocalS3Server.Model(Duration.ofMillis(latency), connectionMb * 1024 * 1024, totalMb * 1024 * 1024);
+
+        FakeSpecieDataset dataset = FakeSpecieDataset.generate(count, seed);
+        System.out.printf("数据集：%d个对象（视频%d个），共%.1fMB；网络模型：延迟%dms，单连接%dMB/s，全局%dMB/s%n",
+                count, dataset.videos(), dataset.totalBytes() / 1048576D, latency, connectionMb, totalMb);
+        List<Result> results = run(dataset, model);
+        System.out.printf("%-18s%10s%10s%10s%12s%10s%14s%n", "复制方式", "对象/秒", "MB/秒", "耗时s", "堆峰值MB", "失败", "目标端核对");
+        results.forEach(result -> System.out.println(result.toRow()));
+        List<Result> unverified = results.stream().filter(result -> !result.verified()).toList();
+        if (!unverified.isEmpty()) {
+            unverified.forEach(result -> System.err.println(result.mode() + "目标端缺少或不一致的对象：" + result.mismatched()));
+            System.exit(1);
+        }
+    }
+
+    /**
+     * 按每种复制方式各同步一遍数据集
+     *
+     * @param dataset 数据集
+     * @param model   源端和目标端替身服务的网络模型
+     */
+    public static List<Result> run(FakeSpecieDataset dataset, LocalS3Server.Model model) throws Exception {
+        Path workDir = Files.createTempDirectory("sync-benchmark");
+        List<Result> results = new ArrayList<>();
+        try (LocalS3Server source = new LocalS3Server(model)) {
+            dataset.seed(source);
+            for (Map.Entry<String, List<String>> mode : modes().entrySet()) {
+                try (LocalS3Server destination = new LocalS3Server(model)) {
+                    results.add(run(mode.getKey(), mode.getValue(), dataset, source, destination, workDir));
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * 一种复制方式的结果
+     *
+     * @param mode             复制方式
+     * @param objectsPerSecond 每秒复制的对象数
+     * @param mbPerSecond      每秒复制的MB数
+     * @param seconds          耗时（秒）
+     * @param heapPeakMb       堆内存峰值（MB）
+     * @param failed           失败的任务数
+     * @param total            数据集对象数
+     * @param mismatched       目标端缺少、大小或内容与源端不一致的对象路径
+     */
+    public record Result(String mode, double objectsPerSecond, double mbPerSecond, double seconds, double heapPeakMb,
+                         long failed, int total, List<String> mismatched) {
+
+        /**
+         * 没有失败的任务，目标端所有对象都与源端一致
+         */
+        public boolean verified() {
+            return failed == 0 && mismatched.isEmpty();
+        }
+
+        String toRow() {
+            return String.format("%-18s%10.1f%10.1f%10.1f%12.1f%10d%14s", mode, objectsPerSecond, mbPerSecond, seconds,
+                    heapPeakMb, failed, (total - mismatched.size()) + "/" + total);
+        }
+
+    }
+
+    /**
+     * 参与比较的复制方式及其配置
+     */
+    private static Map<String, List<String>> modes() {
+        Map<String, List<String>> modes = new LinkedHashMap<>();
+        modes.put("BUFFERED", List.of("--sync.copy.mode=BUFFERED", "--sync.lanes.enabled=false"));
+        modes.put("STREAMING", List.of("--sync.copy.mode=STREAMING", "--sync.lanes.enabled=false"));
+        modes.put("STREAMING+LANES", List.of("--sync.copy.mode=STREAMING", "--sync.lanes.enabled=true", "--sync.execution.mode=ELASTIC"));
+        modes.put("STREAMING+VIRTUAL", List.of("--sync.copy.mode=STREAMING", "--sync.lanes.enabled=true", "--sync.execution.mode=VIRTUAL"));
+        return modes;
+    }
+
+    private static Result run(String name, List<String> modeArgs, FakeSpecieDataset dataset,
+                              LocalS3Server source, LocalS3Server destination, Path workDir) {
+        List<String> args = new ArrayList<>(List.of(
+                "--sync.run-on-startup=false",
+                "--sync.source.endpoint=" + source.endpoint(),
+                "--sync.destination.endpoint=" + destination.endpoint(),
+                "--sync.checkpoint.enabled=false",
+                "--sync.dead-letter.file=" + workDir.resolve(name + "-dead-letter.log"),
+                "--spring.sql.init.mode=never",
+                "--spring.main.banner-mode=off",
+                "--mybatis-plus.global-config.banner=false",
+                "--logging.level.root=WARN"));
+        args.addAll(modeArgs);
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(DemoApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(args.toArray(String[]::new))) {
+            SyncPipeline pipeline = context.getBean(SyncPipeline.class);
+            List<SyncTask> tasks = dataset.rows().stream()
+                    .map(row -> SyncTask.of(row.file().getPath(), row.file().getFileType()))
+                    .toList();
+            System.gc();
+            List<MemoryPoolMXBean> heapPools = ManagementFactory.getMemoryPoolMXBeans().stream()
+                    .filter(pool -> pool.getType() == MemoryType.HEAP)
+                    .toList();
+            heapPools.forEach(MemoryPoolMXBean::resetPeakUsage);
+            SyncReport report = pipeline.run(Flux.fromIterable(tasks)).block();
+            long heapPeak = heapPools.stream().mapToLong(pool -> pool.getPeakUsage().getUsed()).sum();
+            double seconds = report.elapsed().toNanos() / 1e9;
+            List<String> mismatched = tasks.stream()
+                    .filter(task -> !destination.matches(source, task.getBucketName(), task.getObjectName()))
+                    .map(SyncTask::getPath)
+                    .toList();
+            return new Result(name, report.getCopied() / seconds, report.getBytes() / 1048576D / seconds, seconds,
+                    heapPeak / 1048576D, report.getFailed(), tasks.size(), mismatched);
+        }
+    }
+
+}
@@ -0,0 +1,31 @@
+package top.sharehome.demo.benchmark;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 端到端同步吞吐量基准测试的回归入口：以小数据集、不限速的网络模型跑一遍每种复制方式，
+ * 有任务失败或目标端缺少对象、内容不一致时失败；对象数可以通过-Dbenchmark.count调整，例如：
+ * mvn -pl chapter00-study-demo/demo01-minio-to-minio test -Dtest=SyncThroughputBenchmarkTest -Dbenchmark.count=500
+ *
+ * @author AntonyCheng
+ */
+class SyncThroughputBenchmarkTest {
+
+    @Test
+    void everyModeReplicatesTheWholeDataset() throws Exception {
+        int count = Integer.getInteger("benchmark.count", 40);
+        FakeSpecieDataset dataset = FakeSpecieDataset.generate(count, 42);
+        List<SyncThroughputBenchmark.Result> results = SyncThroughputBenchmark.run(dataset, new LocalS3Server.Model(Duration.ZERO, 0, 0));
+        for (SyncThroughputBenchmark.Result result : results) {
+            assertEquals(0, result.failed(), result.mode() + "有失败的任务");
+            assertTrue(result.mismatched().isEmpty(), result.mode() + "目标端缺少或不一致的对象：" + result.mismatched());
+        }
+    }
+
+}
@@ -0,0 +1,142 @@
+package top.sharehome.demo.sync;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.NullAndEmptySource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * ObjectPath.parse的合法路径和各类非法路径
+ *
+ * @author AntonyCheng
+ */
+class ObjectPathTest {
+
+    @Test
+    void parsesBucketAndObjectName() {
+        ObjectPath objectPath = ObjectPath.parse("/xgadmin/camera-001/2023-06-01/1700000000000.jpg");
+        assertEquals("xgadmin", objectPath.bucketName());
+        assertEquals("camera-001/2023-06-01/1700000000000.jpg", objectPath.objectName());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "/abc/a",
+            "/a.b-c.0/a",
+            "/xgadmin/.hidden/a..b/...",
+            "/xgadmin/相机/照片 1.jpg"
+    })
+    void acceptsValidPaths(String path) {
+        ObjectPath objectPath = ObjectPath.parse(path);
+        assertEquals(path, "/" + objectPath.bucketName() + "/" + objectPath.objectName());
+    }
+
+    @Test
+    void acceptsBucketNameOfThreeAndSixtyThreeCharacters() {
+        assertEquals("abc", ObjectPath.parse("/abc/a").bucketName());
+        assertEquals("a".repeat(63), ObjectPath.parse("/" + "a".repeat(63) + "/a").bucketName());
+    }
+
+    @ParameterizedTest
+    @NullAndEmptySource
+    void rejectsEmptyPath(String path) {
+        assertInvalid(path, "路径为空");
+    }
+
+    @Test
+    void rejectsPathWithoutLeadingSlash() {
+        assertInvalid("xgadmin/a.jpg", "路径不以/开头");
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"/XgAdmin/a.jpg", "/xg_admin/a.jpg", "/xg admin/a.jpg"})
+    void rejectsIllegalBucketCharacters(String path) {
+        assertInvalid(path, "桶名称包含非法字符");
+    }
+
+    @Test
+    void rejectsConsecutiveDotsInBucketName() {
+        assertInvalid("/xg..admin/a.jpg", "桶名称包含连续的.");
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"/-xgadmin/a.jpg", "/xgadmin-/a.jpg", "/.xgadmin/a.jpg"})
+    void rejectsBucketNameNotStartingOrEndingWithAlphanumeric(String path) {
+        assertInvalid(path, "桶名称必须以字母或数字开头和结尾");
+    }
+
+    @Test
+    void rejectsBucketNameLength() {
+        assertInvalid("/ab/a.jpg", "桶名称长度不在3~63之间");
+        assertInvalid("/" + "a".repeat(64) + "/a.jpg", "桶名称长度不在3~63之间");
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"/xgadmin", "/xgadmin/", "/"})
+    void rejectsMissingObjectName(String path) {
+        assertInvalid(path, "缺少对象名称");
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"/xgadmin//a.jpg", "/xgadmin/camera-001/", "/xgadmin/camera-001//a.jpg"})
+    void rejectsEmptySegments(String path) {
+        assertInvalid(path, "对象名称包含空的路径段");
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"/xgadmin/./a.jpg", "/xgadmin/../a.jpg", "/xgadmin/camera-001/..", "/xgadmin/."})
+    void rejectsDotSegments(String path) {
+        assertInvalid(path, "对象名称包含.或..路径段");
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"/xgadmin/a\tb.jpg", "/xgadmin/a\nb.jpg", "/xgadmin/a\u007Fb.jpg"})
+    void rejectsControlCharacters(String path) {
+        assertInvalid(path, "对象名称包含控制字符");
+    }
+
+    @Test
+    void limitsObjectNameToOneThousandTwentyFourUtf8Bytes() {
+        assertEquals(1024, ObjectPath.parse("/xgadmin/" + "a".repeat(1024)).objectName().length());
+        assertInvalid("/xgadmin/" + "a".repeat(1025), "对象名称超过1024字节");
+        // 2字节字符
+        assertEquals(512, ObjectPath.parse("/xgadmin/" + "é".repeat(512)).objectName().length());
+        assertInvalid("/xgadmin/" + "é".repeat(513), "对象名称超过1024字节");
+        // 3字节字符
+        assertEquals(341, ObjectPath.parse("/xgadmin/" + "中".repeat(341)).objectName().length());
+        assertInvalid("/xgadmin/" + "中".repeat(342), "对象名称超过1024字节");
+        // 代理对共4字节
+        assertEquals(512, ObjectPath.parse("/xgadmin/" + "😀".repeat(256)).objectName().length());
+        assertInvalid("/xgadmin/" + "😀".repeat(257), "对象名称超过1024字节");
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"abc", "demo-bucket", "a.b-c.0"})
+    void acceptsValidBucketNames(String bucketName) {
+        ObjectPath.validateBucketName(bucketName);
+    }
+
+    @Test
+    void rejectsInvalidBucketNames() {
+        assertInvalidBucket("", "桶名称为空");
+        assertInvalidBucket("demo_bucket", "桶名称包含非法字符");
+        assertInvalidBucket("demo/bucket", "桶名称包含非法字符");
+        assertInvalidBucket("demo..bucket", "桶名称包含连续的.");
+        assertInvalidBucket("ab", "桶名称长度不在3~63之间");
+        assertInvalidBucket("-demo", "桶名称必须以字母或数字开头和结尾");
+    }
+
+    private static void assertInvalidBucket(String bucketName, String reason) {
+        ObjectPath.InvalidPathException e = assertThrows(ObjectPath.InvalidPathException.class, () -> ObjectPath.validateBucketName(bucketName));
+        assertEquals(reason, e.getMessage());
+    }
+
+    private static void assertInvalid(String path, String reason) {
+        ObjectPath.InvalidPathException e = assertThrows(ObjectPath.InvalidPathException.class, () -> ObjectPath.parse(path));
+        assertEquals(reason, e.getMessage());
+    }
+
+}
@@ -1,58 +1,26 @@
 package top.sharehome;
 
-import reactor.core.publisher.Flux;
-import reactor.core.scheduler.Schedulers;
-
-import java.io.IOException;
-import java.util.UUID;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ThreadFactory;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
 
 /**
  * 多种方式多对比,当然这里并不是比较优劣,因为不同方式适用的不同场景不一致
+ * 原来用注释掉的代码块和手工计时比较（虚拟线程5s、平台线程20s、每个任务新建线程池545s、ParallelFlux 2s），
+ * 每个任务都打印到控制台，测到的主要是System.out的锁竞争，现在改为JMH基准测试，见ExecutionModelBenchmark
+ * 运行方式（参数与JMH命令行相同，不传参数时运行全部基准测试）：
+ * mvn -pl chapter00-study-demo/demo02-test-reactor-performance -am package -DskipTests
+ * java -jar chapter00-study-demo/demo02-test-reactor-performance/target/benchmarks.jar ExecutionModelBenchmark -rf json -rff execution-model.json
+ * 也可以在IDE中直接运行main方法，例如参数：ExecutionModelBenchmark -p tasks=10000 -p workloadName=blocking,timer
+ * 吞吐量之外的尾延迟见开放模型负载驱动top.sharehome.load.LoadDriver，每个任务的内存、GC和线程开销见剖析模式top.sharehome.profile.StrategyProfiler
+ * 每种调度器一次线程切换的开销见SchedulerBenchmark
  *
  * @author AntonyCheng
  */
 
 public class Main {
 
-    public static void main(String[] args) throws IOException {
-
-//        // 虚拟线程方式（多线程并发）：5s CPU平均占比20-40%
-//        ThreadFactory virtualFactory = Thread.ofVirtual().factory();
-//        for (int i = 0; i < 100000; i++) {
-//            int taskId = i;
-//            virtualFactory.newThread(()->{
-//                System.out.println(taskId + "\t" + UUID.randomUUID().toString().replace("-", ""));
-//            }).start();
-//        }
-
-//        // 平台线程方式（多线程并发）：20s CPU占比最高，100%占比时间最长
-//        ThreadFactory factory = Thread.ofPlatform().factory();
-//        for (int i = 0; i < 100000; i++) {
-//            int taskId = i;
-//            factory.newThread(()->{
-//                System.out.println(taskId + "\t" + UUID.randomUUID().toString().replace("-", ""));
-//            }).start();
-//        }
-
-//        // 线程池方式（多线程串行）：545s 主要时间用于切换线程，CPU占比取决于线程池大小
-//        for (int i = 0; i < 100000; i++) {
-//            int taskId = i;
-//            Executors.newFixedThreadPool(12).submit(() -> {
-//                System.out.println(taskId + "\t" + UUID.randomUUID().toString().replace("-", ""));
-//            });
-//        }
-
-        // 响应式方式（多线程并行）：2s 无阻塞,主打的一个非常快！！！
-        Flux.range(0, 100000)
-                .parallel().runOn(Schedulers.newParallel("flux", 12))
-                .subscribe(taskId -> {
-                    System.out.println(taskId + "\t" + UUID.randomUUID().toString().replace("-", ""));
-                });
-
-        System.in.read();
-
+    public static void main(String[] args) throws Exception {
+        new Runner(new CommandLineOptions(args)).run();
     }
 
 }
@@ -0,0 +1,168 @@
+package top.sharehome.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import top.sharehome.workload.Workload;
+import top.sharehome.workload.Workloads;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 执行方式对比：虚拟线程、平台线程、线程池、Schedulers.parallel()、Schedulers.boundedElastic()、ParallelFlux
+ * 每次基准操作运行tasks个任务并等待全部完成，任务结果累加后交给Blackhole，不再打印到控制台（原来的耗时主要是System.out的锁竞争）；
+ * 每种执行方式都跑一遍全部负载（见top.sharehome.workload），负载参数通过-jvmArgsAppend传系统属性，例如-jvmArgsAppend -Dworkload.blocking.micros=5000；
+ * 调度器方式与线程方式一样一次提交全部任务（flatMap并发数为tasks），并发只受调度器线程数限制；
+ * Throughput为每秒完成的批次数（乘以tasks即每秒任务数），SampleTime为单个批次耗时的分布
+ *
+ * @author AntonyCheng
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class ExecutionModelBenchmark {
+
+    /**
+     * 每批任务数
+     */
+    @Param({"1000", "10000"})
+    private int tasks;
+
+    /**
+     * 任务负载名称
+     */
+    @Param({"cpu", "blocking", "timer", "allocation", "mixed"})
+    private String workloadName;
+
+    private Workload workload;
+
+    /**
+     * 线程池和ParallelFlux的线程数
+     */
+    @Param({"12"})
+    private int parallelism;
+
+    private ExecutorService virtualThreads;
+
+    private ExecutorService platformThreads;
+
+    private ExecutorService fixedThreadPool;
+
+    /**
+     * 只给parallelFlux()的runOn使用，parallelScheduler()使用全局Schedulers.parallel()
+     */
+    private Scheduler fluxScheduler;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        workload = Workloads.get(workloadName);
+        virtualThreads = Executors.newVirtualThreadPerTaskExecutor();
+        platformThreads = Executors.newThreadPerTaskExecutor(Thread.ofPlatform().factory());
+        fixedThreadPool = Executors.newFixedThreadPool(parallelism);
+        fluxScheduler = Schedulers.newParallel("flux", parallelism);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        virtualThreads.shutdownNow();
+        platformThreads.shutdownNow();
+        fixedThreadPool.shutdownNow();
+        fluxScheduler.dispose();
+    }
+
+    /**
+     * 虚拟线程：每个任务一个虚拟线程
+     */
+    @Benchmark
+    public void virtualThreads(Blackhole blackhole) throws Exception {
+        blackhole.consume(submitAll(virtualThreads));
+    }
+
+    /**
+     * 平台线程：每个任务一个平台线程
+     */
+    @Benchmark
+    public void platformThreads(Blackhole blackhole) throws Exception {
+        blackhole.consume(submitAll(platformThreads));
+    }
+
+    /**
+     * 固定大小线程池：任务排队，由parallelism个线程执行
+     */
+    @Benchmark
+    public void fixedThreadPool(Blackhole blackhole) throws Exception {
+        blackhole.consume(submitAll(fixedThreadPool));
+    }
+
+    /**
+     * 全局并行调度器：线程数等于CPU核数，每个任务subscribeOn到调度器上
+     */
+    @Benchmark
+    public void parallelScheduler(Blackhole blackhole) {
+        blackhole.consume(subscribeAll(Schedulers.parallel()));
+    }
+
+    /**
+     * 全局有界弹性调度器：最多10倍CPU核数个线程，超出的任务排队
+     */
+    @Benchmark
+    public void boundedElastic(Blackhole blackhole) {
+        blackhole.consume(subscribeAll(Schedulers.boundedElastic()));
+    }
+
+    /**
+     * ParallelFlux：Flux.range(...).parallel().runOn(Schedulers.newParallel("flux", parallelism))
+     */
+    @Benchmark
+    public void parallelFlux(Blackhole blackhole) {
+        blackhole.consume(Flux.range(0, tasks)
+                .parallel(parallelism)
+                .runOn(fluxScheduler)
+                .flatMap(workload::execute)
+                .reduce(Long::sum)
+                .block());
+    }
+
+    private long subscribeAll(Scheduler scheduler) {
+        return Flux.range(0, tasks)
+                .flatMap(taskId -> workload.execute(taskId).subscribeOn(scheduler), tasks)
+                .reduce(0L, Long::sum)
+                .block();
+    }
+
+    private long submitAll(ExecutorService executor) throws Exception {
+        List<Future<Long>> futures = new ArrayList<>(tasks);
+        for (int i = 0; i < tasks; i++) {
+            int taskId = i;
+            futures.add(executor.submit(() -> workload.run(taskId)));
+        }
+        long sum = 0;
+        for (Future<Long> future : futures) {
+            sum += future.get();
+        }
+        return sum;
+    }
+
+}
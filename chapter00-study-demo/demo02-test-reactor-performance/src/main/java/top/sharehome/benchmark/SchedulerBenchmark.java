@@ -0,0 +1,172 @@
+package top.sharehome.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 调度器对比：chapter02-reactor中DataStreamDemo.thread()创建的每一种调度器，外加一个虚拟线程调度器
+ * 1、publishOnHops：1024个元素依次经过hops个publishOn，结果为每个元素的耗时，hops=4与hops=1的差除以3即为每一跳的开销；
+ * 2、subscribeOnRoundTrip：Mono.subscribeOn(调度器).block()，结果分布为一次交给调度器线程再交回调用线程的往返延迟；
+ * 3、runOnScaling：1024个元素经ParallelFlux.runOn分到rails条轨道上做固定的计算，结果为每个元素的耗时，rails取到CPU核数可以看到扩展性
+ * immediate不切换线程，作为基线；single、newSingle只有一个线程，runOn没有扩展性
+ * 运行方式：java -jar target/benchmarks.jar SchedulerBenchmark -p rails=1,2,4,8,16 -rf json -rff scheduler.json
+ *
+ * @author AntonyCheng
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SchedulerBenchmark {
+
+    static final int ELEMENTS = 1024;
+
+    /**
+     * 调度器
+     */
+    @Param({"IMMEDIATE", "SINGLE", "NEW_SINGLE", "BOUNDED_ELASTIC", "NEW_BOUNDED_ELASTIC", "FROM_EXECUTOR", "PARALLEL", "NEW_PARALLEL", "VIRTUAL"})
+    private SchedulerFactory scheduler;
+
+    private Scheduler instance;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        instance = scheduler.create();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (!scheduler.global) {
+            instance.dispose();
+        }
+    }
+
+    /**
+     * publishOn跳数
+     */
+    @State(Scope.Benchmark)
+    public static class Hops {
+
+        @Param({"1", "4"})
+        private int hops;
+
+    }
+
+    /**
+     * ParallelFlux轨道数
+     */
+    @State(Scope.Benchmark)
+    public static class Rails {
+
+        @Param({"1", "4"})
+        private int rails;
+
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ELEMENTS)
+    public void publishOnHops(Hops hops, Blackhole blackhole) {
+        Flux<Integer> flux = Flux.range(0, ELEMENTS);
+        for (int i = 0; i < hops.hops; i++) {
+            flux = flux.publishOn(instance);
+        }
+        blackhole.consume(flux.reduce(0L, (sum, element) -> sum + element).block());
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    public void subscribeOnRoundTrip(Blackhole blackhole) {
+        blackhole.consume(Mono.fromCallable(System::nanoTime)
+                .subscribeOn(instance)
+                .block());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ELEMENTS)
+    public void runOnScaling(Rails rails, Blackhole blackhole) {
+        blackhole.consume(Flux.range(0, ELEMENTS)
+                .parallel(rails.rails)
+                .runOn(instance)
+                .map(element -> {
+                    Blackhole.consumeCPU(256);
+                    return (long) element;
+                })
+                .reduce(Long::sum)
+                .block());
+    }
+
+    /**
+     * 与DataStreamDemo.thread()中的创建方式一致
+     */
+    public enum SchedulerFactory {
+
+        IMMEDIATE(true, Schedulers::immediate),
+
+        SINGLE(true, Schedulers::single),
+
+        NEW_SINGLE(false, () -> Schedulers.newSingle("single")),
+
+        BOUNDED_ELASTIC(true, Schedulers::boundedElastic),
+
+        NEW_BOUNDED_ELASTIC(false, () -> Schedulers.newBoundedElastic(10, 1000, "boundedElastic2", 60)),
+
+        /**
+         * fromExecutor释放时不会关闭线程池，这里改用守护线程，否则基准测试进程不能退出
+         */
+        FROM_EXECUTOR(false, () -> Schedulers.fromExecutor(
+                new ThreadPoolExecutor(10, 100, 60, TimeUnit.SECONDS, new LinkedBlockingDeque<>(10000),
+                        Thread.ofPlatform().daemon().name("fromExecutor-", 0).factory()))),
+
+        PARALLEL(true, Schedulers::parallel),
+
+        NEW_PARALLEL(false, () -> Schedulers.newParallel("parallel", 20)),
+
+        /**
+         * 每个任务一个虚拟线程
+         */
+        VIRTUAL(false, () -> Schedulers.fromExecutorService(Executors.newVirtualThreadPerTaskExecutor(), "virtual"));
+
+        /**
+         * 是否为全局共享的调度器，全局调度器不能释放
+         */
+        private final boolean global;
+
+        private final Supplier<Scheduler> factory;
+
+        SchedulerFactory(boolean global, Supplier<Scheduler> factory) {
+            this.global = global;
+            this.factory = factory;
+        }
+
+        Scheduler create() {
+            return factory.get();
+        }
+
+    }
+
+}
@@ -0,0 +1,174 @@
+package top.sharehome.execution;
+
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import top.sharehome.workload.Workload;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 执行方式，与ExecutionModelBenchmark中的基准方法一一对应，供负载驱动等按任务逐个提交的场景使用
+ *
+ * @author AntonyCheng
+ */
+public enum ExecutionModel {
+
+    /**
+     * 每个任务一个虚拟线程
+     */
+    VIRTUAL_THREADS {
+        @Override
+        public TaskSubmitter open(Workload workload, int parallelism) {
+            return threads(Executors.newVirtualThreadPerTaskExecutor(), workload);
+        }
+    },
+
+    /**
+     * 每个任务一个平台线程
+     */
+    PLATFORM_THREADS {
+        @Override
+        public TaskSubmitter open(Workload workload, int parallelism) {
+            return threads(Executors.newThreadPerTaskExecutor(Thread.ofPlatform().factory()), workload);
+        }
+    },
+
+    /**
+     * 固定大小线程池，无界队列
+     */
+    FIXED_THREAD_POOL {
+        @Override
+        public TaskSubmitter open(Workload workload, int parallelism) {
+            return threads(Executors.newFixedThreadPool(parallelism), workload);
+        }
+    },
+
+    /**
+     * 与Schedulers.parallel()配置相同（线程数等于CPU核数）的新建并行调度器，每个任务subscribeOn到调度器上
+     */
+    PARALLEL_SCHEDULER {
+        @Override
+        public TaskSubmitter open(Workload workload, int parallelism) {
+            return scheduled(Schedulers.newParallel("parallel", Schedulers.DEFAULT_POOL_SIZE, true), workload);
+        }
+    },
+
+    /**
+     * 与Schedulers.boundedElastic()配置相同（最多10倍CPU核数个线程）的新建有界弹性调度器，每个任务subscribeOn到调度器上
+     */
+    BOUNDED_ELASTIC {
+        @Override
+        public TaskSubmitter open(Workload workload, int parallelism) {
+            return scheduled(Schedulers.newBoundedElastic(Schedulers.DEFAULT_BOUNDED_ELASTIC_SIZE,
+                    Schedulers.DEFAULT_BOUNDED_ELASTIC_QUEUESIZE, "boundedElastic", 60, true), workload);
+        }
+    },
+
+    /**
+     * 一条常驻的ParallelFlux流水线：sink.asFlux().parallel(parallelism).runOn(Schedulers.newParallel("flux", parallelism))，
+     * 提交即向sink发出任务编号，rail队列满后任务积压在sink的缓冲区里
+     */
+    PARALLEL_FLUX {
+        @Override
+        public TaskSubmitter open(Workload workload, int parallelism) {
+            Scheduler scheduler = Schedulers.newParallel("flux", parallelism);
+            Sinks.Many<Submission> sink = Sinks.many().unicast().onBackpressureBuffer();
+            Disposable pipeline = sink.asFlux()
+                    .parallel(parallelism)
+                    .runOn(scheduler)
+                    .flatMap(submission -> workload.execute(submission.taskId())
+                            .doOnError(error -> submission.onFailure().run())
+                            .onErrorComplete()
+                            .map(result -> submission))
+                    .subscribe(submission -> submission.onSuccess().run());
+            return new TaskSubmitter() {
+                @Override
+                public void submit(int taskId, Runnable onSuccess, Runnable onFailure) {
+                    // 只允许一个线程提交，并发提交时emitNext会失败
+                    if (sink.tryEmitNext(new Submission(taskId, onSuccess, onFailure)).isFailure()) {
+                        onFailure.run();
+                    }
+                }
+
+                @Override
+                public void close() {
+                    sink.tryEmitComplete();
+                    pipeline.dispose();
+                    scheduler.dispose();
+                }
+            };
+        }
+    };
+
+    /**
+     * 打开执行方式
+     *
+     * @param workload    任务负载
+     * @param parallelism 线程池和ParallelFlux的线程数，其他执行方式忽略
+     */
+    public abstract TaskSubmitter open(Workload workload, int parallelism);
+
+    private static TaskSubmitter threads(ExecutorService executor, Workload workload) {
+        return new TaskSubmitter() {
+            @Override
+            public void submit(int taskId, Runnable onSuccess, Runnable onFailure) {
+                try {
+                    executor.execute(() -> {
+                        try {
+                            workload.run(taskId);
+                        } catch (RuntimeException e) {
+                            onFailure.run();
+                            return;
+                        }
+                        onSuccess.run();
+                    });
+                } catch (RuntimeException e) {
+                    onFailure.run();
+                }
+            }
+
+            @Override
+            public void close() {
+                executor.shutdownNow();
+            }
+        };
+    }
+
+    /**
+     * 提交到本次运行新建的调度器，关闭时取消在途任务并释放调度器
+     * 不用全局调度器：关闭时全局调度器上积压的任务和共享定时器上的等待会继续运行，混进下一种执行方式的测量；
+     * 在途任务的订阅放在inFlight中，定时器负载的回调在定时器线程上执行，只释放调度器取消不了它们
+     */
+    private static TaskSubmitter scheduled(Scheduler scheduler, Workload workload) {
+        Disposable.Composite inFlight = Disposables.composite();
+        return new TaskSubmitter() {
+            @Override
+            public void submit(int taskId, Runnable onSuccess, Runnable onFailure) {
+                // 任务可能在subscribe返回前就结束，先登记占位，订阅后再填入
+                Disposable.Swap task = Disposables.swap();
+                if (!inFlight.add(task)) {
+                    onFailure.run();
+                    return;
+                }
+                task.update(workload.execute(taskId)
+                        .subscribeOn(scheduler)
+                        .doFinally(signal -> inFlight.remove(task))
+                        .subscribe(result -> onSuccess.run(), error -> onFailure.run()));
+            }
+
+            @Override
+            public void close() {
+                inFlight.dispose();
+                scheduler.dispose();
+            }
+        };
+    }
+
+    private record Submission(int taskId, Runnable onSuccess, Runnable onFailure) {
+    }
+
+}
@@ -0,0 +1,25 @@
+package top.sharehome.execution;
+
+/**
+ * 打开的执行方式，逐个提交任务；提交不阻塞调用线程（排队由执行方式自己负责），任务结束时回调
+ *
+ * @author AntonyCheng
+ */
+public interface TaskSubmitter extends AutoCloseable {
+
+    /**
+     * 提交一个任务
+     *
+     * @param taskId    任务编号
+     * @param onSuccess 任务完成时在执行线程上回调
+     * @param onFailure 任务失败或被拒绝时回调
+     */
+    void submit(int taskId, Runnable onSuccess, Runnable onFailure);
+
+    /**
+     * 关闭执行方式自己创建的线程池或调度器，取消还没有完成的任务，不影响下一种执行方式
+     */
+    @Override
+    void close();
+
+}
@@ -0,0 +1,135 @@
+package top.sharehome.load;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import top.sharehome.execution.ExecutionModel;
+import top.sharehome.execution.TaskSubmitter;
+import top.sharehome.workload.Workload;
+import top.sharehome.workload.Workloads;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 开放模型负载驱动：按固定到达速率向每种执行方式提交任务，不等上一个任务完成，记录每个任务的延迟分布
+ * 闭环压测（等前一个任务完成再发下一个）在系统变慢时会跟着少发请求，排队时间被漏记（coordinated omission）；
+ * 这里每个任务的延迟从它按计划应当发出的时刻算起，发送线程落后或执行方式排队都会计入，
+ * 同时记录从实际提交时刻算起的延迟作为对照，两者的差距就是提交本身变慢（例如平台线程创建）时闭环压测会漏记的时间
+ * 运行方式（Java 21）：java -cp target/benchmarks.jar top.sharehome.load.LoadDriver 参数，
+ * 参数依次为：每秒任务数 测量秒数 负载名称 执行方式（逗号分隔，默认全部） 线程数 预热秒数，例如：
+ * 20000 10 blocking PARALLEL_SCHEDULER,PARALLEL_FLUX,VIRTUAL_THREADS 12 3
+ * 阻塞负载默认1ms，12个线程每秒最多处理约12000个任务，超过后排队时间随运行时间线性增长，p99和max会明显拉开
+ *
+ * @author AntonyCheng
+ */
+public class LoadDriver {
+
+    /**
+     * 发完任务后等待在途任务完成的最长时间
+     */
+    private static final long DRAIN_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+    public static void main(String[] args) throws Exception {
+        int rate = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        Workload workload = Workloads.get(args.length > 2 ? args[2] : "blocking");
+        List<ExecutionModel> models = args.length > 3
+                ? Arrays.stream(args[3].split(",")).map(String::trim).map(ExecutionModel::valueOf).toList()
+                : List.of(ExecutionModel.values());
+        int parallelism = args.length > 4 ? Integer.parseInt(args[4]) : 12;
+        int warmupSeconds = args.length > 5 ? Integer.parseInt(args[5]) : 3;
+
+        System.out.printf("到达速率=%d/s，测量%ds（预热%ds），负载=%s，线程数=%d；延迟单位ms，括号内为未校正（从实际提交时刻算起）%n",
+                rate, seconds, warmupSeconds, workload.name(), parallelism);
+        System.out.printf("%-20s%12s%10s%10s%10s%12s%18s%18s%8s%n",
+                "执行方式", "完成/s", "p50", "p99", "p99.9", "max", "(p99)", "(max)", "失败");
+        for (ExecutionModel model : models) {
+            try (TaskSubmitter submitter = model.open(workload, parallelism)) {
+                Result result = run(submitter, rate, warmupSeconds, seconds);
+                Histogram corrected = result.corrected();
+                Histogram uncorrected = result.uncorrected();
+                System.out.printf("%-20s%12.1f%10.2f%10.2f%10.2f%12.2f%18.2f%18.2f%8d%n", model,
+                        result.completedPerSecond(), millis(corrected, 50), millis(corrected, 99), millis(corrected, 99.9),
+                        corrected.getMaxValue() / 1e6, millis(uncorrected, 99), uncorrected.getMaxValue() / 1e6, result.failed());
+            }
+        }
+    }
+
+    /**
+     * 按计划时刻逐个提交任务，预热阶段的任务不计入直方图
+     */
+    private static Result run(TaskSubmitter submitter, int rate, int warmupSeconds, int seconds) {
+        long interval = TimeUnit.SECONDS.toNanos(1) / rate;
+        long total = (long) rate * (warmupSeconds + seconds);
+        long warmupTasks = (long) rate * warmupSeconds;
+        Recorder corrected = new Recorder(3);
+        Recorder uncorrected = new Recorder(3);
+        LongAdder finished = new LongAdder();
+        LongAdder failed = new LongAdder();
+        // 测量阶段每个任务是否已经结束，回调和等待超时后的补记通过CAS争用，每个任务只记录一次
+        AtomicIntegerArray done = new AtomicIntegerArray((int) (total - warmupTasks));
+        long start = System.nanoTime();
+        for (long i = 0; i < total; i++) {
+            long intended = start + i * interval;
+            long now = System.nanoTime();
+            // 落后于计划时不等待，直接追赶，落后的时间记在这些任务的延迟里
+            if (now < intended) {
+                LockSupport.parkNanos(intended - now);
+                now = System.nanoTime();
+            }
+            long submitted = now;
+            int index = (int) (i - warmupTasks);
+            submitter.submit((int) i, () -> {
+                long end = System.nanoTime();
+                if (index >= 0 && done.compareAndSet(index, 0, 1)) {
+                    corrected.recordValue(end - intended);
+                    uncorrected.recordValue(end - submitted);
+                }
+                finished.increment();
+            }, () -> {
+                if (index >= 0 && done.compareAndSet(index, 0, 1)) {
+                    failed.increment();
+                }
+                finished.increment();
+            });
+        }
+        long issued = System.nanoTime();
+        // 等待在途任务完成
+        while (finished.sum() < total && System.nanoTime() - issued < DRAIN_NANOS) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+        }
+        long deadline = System.nanoTime();
+        long elapsed = deadline - start - TimeUnit.SECONDS.toNanos(warmupSeconds);
+        // 超时未完成的测量任务按延迟至少为deadline - intended补记进校正直方图，否则最慢的任务恰好被漏掉，同时计入失败
+        long unfinished = 0;
+        for (int index = 0; index < done.length(); index++) {
+            if (done.compareAndSet(index, 0, 1)) {
+                corrected.recordValue(deadline - (start + (warmupTasks + index) * interval));
+                unfinished++;
+            }
+        }
+        Histogram correctedHistogram = corrected.getIntervalHistogram();
+        return new Result(correctedHistogram, uncorrected.getIntervalHistogram(),
+                (correctedHistogram.getTotalCount() - unfinished) / (elapsed / 1e9), failed.sum() + unfinished);
+    }
+
+    private static double millis(Histogram histogram, double percentile) {
+        return histogram.getValueAtPercentile(percentile) / 1e6;
+    }
+
+    /**
+     * 一种执行方式的运行结果
+     *
+     * @param corrected          从计划发出时刻算起的延迟（纳秒），超时未完成的任务按等待截止时刻补记
+     * @param uncorrected        从实际提交时刻算起的延迟（纳秒）
+     * @param completedPerSecond 测量阶段平均每秒完成数
+     * @param failed             测量阶段失败、被拒绝和超时未完成的任务数
+     */
+    private record Result(Histogram corrected, Histogram uncorrected, double completedPerSecond, long failed) {
+    }
+
+}
@@ -0,0 +1,70 @@
+package top.sharehome.profile;
+
+/**
+ * 一种执行方式的资源开销，由子进程以一行制表符分隔的文本交给父进程
+ *
+ * @param model          执行方式
+ * @param tasks          任务数
+ * @param failed         失败任务数
+ * @param wallMillis     耗时（毫秒）
+ * @param allocatedBytes 运行期间所有线程（包括已结束的线程）分配的字节数
+ * @param gcCount        GC次数（GarbageCollectorMXBean）
+ * @param gcMillis       GC耗时（GarbageCollectorMXBean，毫秒）
+ * @param pauseSumMillis GC暂停合计（JFR jdk.GarbageCollection，毫秒）
+ * @param pauseMaxMillis 最长GC暂停（JFR jdk.GarbageCollection，毫秒）
+ * @param peakThreads    峰值平台线程数（虚拟线程不计入）
+ * @param startedThreads 新建平台线程数
+ * @param peakRssKb      进程峰值常驻内存（KB），非Linux为-1
+ * @author AntonyCheng
+ */
+public record ProfileResult(String model,
+                            long tasks,
+                            long failed,
+                            long wallMillis,
+                            long allocatedBytes,
+                            long gcCount,
+                            long gcMillis,
+                            double pauseSumMillis,
+                            double pauseMaxMillis,
+                            int peakThreads,
+                            long startedThreads,
+                            long peakRssKb) {
+
+    /**
+     * 子进程输出结果行的前缀
+     */
+    static final String PREFIX = "RESULT\t";
+
+    static final String HEADER = "执行方式\t任务数\t失败\t耗时ms\t分配B/任务\tGC次数\tGC耗时ms\t暂停合计ms\t最长暂停ms\t峰值线程\t新建线程\t峰值RSS MB";
+
+    /**
+     * 每个任务平均分配的字节数
+     */
+    public long allocatedPerTask() {
+        return tasks == 0 ? 0 : allocatedBytes / tasks;
+    }
+
+    String toLine() {
+        return PREFIX + String.join("\t", model, String.valueOf(tasks), String.valueOf(failed), String.valueOf(wallMillis),
+                String.valueOf(allocatedBytes), String.valueOf(gcCount), String.valueOf(gcMillis), String.valueOf(pauseSumMillis),
+                String.valueOf(pauseMaxMillis), String.valueOf(peakThreads), String.valueOf(startedThreads), String.valueOf(peakRssKb));
+    }
+
+    static ProfileResult parse(String line) {
+        String[] fields = line.substring(PREFIX.length()).split("\t");
+        return new ProfileResult(fields[0], Long.parseLong(fields[1]), Long.parseLong(fields[2]), Long.parseLong(fields[3]),
+                Long.parseLong(fields[4]), Long.parseLong(fields[5]), Long.parseLong(fields[6]), Double.parseDouble(fields[7]),
+                Double.parseDouble(fields[8]), Integer.parseInt(fields[9]), Long.parseLong(fields[10]), Long.parseLong(fields[11]));
+    }
+
+    /**
+     * 汇总表中的一行（制表符分隔，与HEADER对应）
+     */
+    String toRow() {
+        return String.join("\t", model, String.valueOf(tasks), String.valueOf(failed), String.valueOf(wallMillis),
+                String.valueOf(allocatedPerTask()), String.valueOf(gcCount), String.valueOf(gcMillis),
+                String.format("%.2f", pauseSumMillis), String.format("%.2f", pauseMaxMillis), String.valueOf(peakThreads),
+                String.valueOf(startedThreads), peakRssKb < 0 ? "?" : String.format("%.1f", peakRssKb / 1024D));
+    }
+
+}
@@ -0,0 +1,129 @@
+package top.sharehome.profile;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import top.sharehome.execution.ExecutionModel;
+import top.sharehome.execution.TaskSubmitter;
+import top.sharehome.workload.Workload;
+import top.sharehome.workload.Workloads;
+
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 在单独的JVM中剖析一种执行方式，由StrategyProfiler启动，结果以一行文本输出到标准输出
+ * 先完整运行一批任务预热，GC并重置峰值后再运行一批任务测量；峰值RSS通过向/proc/self/clear_refs写5重置，
+ * 测量期间开启JFR记录GC事件，记录文件保留在输出目录中供JDK Mission Control查看
+ * 参数依次为：执行方式 负载名称 任务数 线程数 输出目录
+ *
+ * @author AntonyCheng
+ */
+public class ProfileRun {
+
+    private static final com.sun.management.ThreadMXBean THREADS = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    public static void main(String[] args) throws Exception {
+        ExecutionModel model = ExecutionModel.valueOf(args[0]);
+        Workload workload = Workloads.get(args[1]);
+        int tasks = Integer.parseInt(args[2]);
+        int parallelism = Integer.parseInt(args[3]);
+        Path outputDir = Path.of(args[4]);
+
+        try (TaskSubmitter submitter = model.open(workload, parallelism)) {
+            runBatch(submitter, tasks);
+            System.gc();
+            resetPeakRss();
+            THREADS.resetPeakThreadCount();
+            long allocatedBefore = THREADS.getTotalThreadAllocatedBytes();
+            long startedBefore = THREADS.getTotalStartedThreadCount();
+            long gcCountBefore = gcCount();
+            long gcMillisBefore = gcMillis();
+            try (Recording recording = new Recording()) {
+                recording.enable("jdk.GarbageCollection");
+                recording.start();
+                long start = System.nanoTime();
+                long failed = runBatch(submitter, tasks);
+                long wallMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                recording.stop();
+                long allocated = THREADS.getTotalThreadAllocatedBytes() - allocatedBefore;
+                Path jfr = outputDir.resolve(model + ".jfr");
+                recording.dump(jfr);
+                double pauseSum = 0;
+                double pauseMax = 0;
+                for (RecordedEvent event : RecordingFile.readAllEvents(jfr)) {
+                    pauseSum += event.getDuration("sumOfPauses").toNanos() / 1e6;
+                    pauseMax = Math.max(pauseMax, event.getDuration("longestPause").toNanos() / 1e6);
+                }
+                ProfileResult result = new ProfileResult(model.name(), tasks, failed, wallMillis, allocated,
+                        gcCount() - gcCountBefore, gcMillis() - gcMillisBefore, pauseSum, pauseMax,
+                        THREADS.getPeakThreadCount(), THREADS.getTotalStartedThreadCount() - startedBefore, peakRssKb());
+                System.out.println(result.toLine());
+            }
+        }
+        // 线程池和调度器已经在close中关闭，定时器负载等共享调度器的线程是守护线程
+        System.exit(0);
+    }
+
+    /**
+     * 一次提交全部任务并等待完成
+     *
+     * @return 失败任务数
+     */
+    private static long runBatch(TaskSubmitter submitter, int tasks) throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(tasks);
+        LongAdder failed = new LongAdder();
+        for (int i = 0; i < tasks; i++) {
+            submitter.submit(i, latch::countDown, () -> {
+                failed.increment();
+                latch.countDown();
+            });
+        }
+        latch.await();
+        return failed.sum();
+    }
+
+    private static long gcCount() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream().mapToLong(GarbageCollectorMXBean::getCollectionCount).sum();
+    }
+
+    private static long gcMillis() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream().mapToLong(GarbageCollectorMXBean::getCollectionTime).sum();
+    }
+
+    /**
+     * 重置进程峰值RSS（Linux 4.0+），失败时峰值包含预热阶段
+     */
+    private static void resetPeakRss() {
+        try {
+            Files.writeString(Path.of("/proc/self/clear_refs"), "5");
+        } catch (IOException | UnsupportedOperationException e) {
+            System.err.println("无法重置峰值RSS，结果包含预热阶段：" + e);
+        }
+    }
+
+    /**
+     * /proc/self/status中的VmHWM（KB），读不到时为-1
+     */
+    private static long peakRssKb() {
+        try {
+            List<String> lines = Files.readAllLines(Path.of("/proc/self/status"));
+            for (String line : lines) {
+                if (line.startsWith("VmHWM:")) {
+                    return Long.parseLong(line.substring("VmHWM:".length()).replace("kB", "").trim());
+                }
+            }
+        } catch (IOException e) {
+            // 非Linux
+        }
+        return -1;
+    }
+
+}
@@ -0,0 +1,78 @@
+package top.sharehome.profile;
+
+import top.sharehome.execution.ExecutionModel;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 剖析模式：比较各执行方式的内存和线程开销，而不只是速度
+ * 每种执行方式在单独的JVM中运行（见ProfileRun），堆、JIT状态和进程RSS互不影响，
+ * 采集每个任务分配的字节数（ThreadMXBean）、GC次数和耗时（GarbageCollectorMXBean）、GC暂停（JFR）、峰值平台线程数和峰值RSS，
+ * 汇总表打印到控制台并写入输出目录的summary.tsv，每种执行方式的JFR记录也在输出目录中
+ * 运行方式（Java 21）：java -cp target/benchmarks.jar top.sharehome.profile.StrategyProfiler 参数，
+ * 参数依次为：任务数 负载名称 执行方式（逗号分隔，默认全部） 线程数 输出目录 子进程堆大小，例如：
+ * 100000 mixed VIRTUAL_THREADS,BOUNDED_ELASTIC,PARALLEL_FLUX 12 profile 2g
+ *
+ * @author AntonyCheng
+ */
+public class StrategyProfiler {
+
+    public static void main(String[] args) throws Exception {
+        int tasks = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        String workload = args.length > 1 ? args[1] : "mixed";
+        List<ExecutionModel> models = args.length > 2
+                ? Arrays.stream(args[2].split(",")).map(String::trim).map(ExecutionModel::valueOf).toList()
+                : List.of(ExecutionModel.values());
+        int parallelism = args.length > 3 ? Integer.parseInt(args[3]) : 12;
+        Path outputDir = Path.of(args.length > 4 ? args[4] : "profile");
+        String heap = args.length > 5 ? args[5] : "2g";
+        Files.createDirectories(outputDir);
+
+        System.out.printf("任务数=%d，负载=%s，线程数=%d，子进程堆=%s，输出目录=%s%n", tasks, workload, parallelism, heap, outputDir.toAbsolutePath());
+        List<String> rows = new ArrayList<>();
+        rows.add(ProfileResult.HEADER);
+        for (ExecutionModel model : models) {
+            ProfileResult result = fork(model, workload, tasks, parallelism, outputDir, heap);
+            rows.add(result == null ? model + "\t运行失败" : result.toRow());
+        }
+        Files.write(outputDir.resolve("summary.tsv"), rows, StandardCharsets.UTF_8);
+        rows.forEach(System.out::println);
+    }
+
+    /**
+     * 启动子进程剖析一种执行方式，子进程异常退出时返回null
+     */
+    private static ProfileResult fork(ExecutionModel model, String workload, int tasks, int parallelism, Path outputDir, String heap) throws Exception {
+        String java = ProcessHandle.current().info().command().orElse("java");
+        Process process = new ProcessBuilder(java, "-Xms" + heap, "-Xmx" + heap,
+                "-cp", System.getProperty("java.class.path"), ProfileRun.class.getName(),
+                model.name(), workload, String.valueOf(tasks), String.valueOf(parallelism), outputDir.toString())
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+        ProfileResult result = null;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith(ProfileResult.PREFIX)) {
+                    result = ProfileResult.parse(line);
+                } else {
+                    System.out.println(line);
+                }
+            }
+        }
+        int exitCode = process.waitFor();
+        if (exitCode != 0) {
+            System.err.println(model + "子进程退出码：" + exitCode);
+            return null;
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,38 @@
+package top.sharehome.workload;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 分配密集负载：每个任务分配一批短命的字节数组（长度随任务编号变化，逃逸分析不能消除），写入后汇总
+ * 每个任务约分配workload.allocation.kb（默认64）KB，主要压力在TLAB分配和年轻代GC
+ *
+ * @author AntonyCheng
+ */
+public class AllocationWorkload implements Workload {
+
+    private static final int CHUNKS = 32;
+
+    private static final int CHUNK_BYTES = Integer.getInteger("workload.allocation.kb", 64) * 1024 / CHUNKS;
+
+    @Override
+    public String name() {
+        return "allocation";
+    }
+
+    @Override
+    public long run(int taskId) {
+        List<byte[]> chunks = new ArrayList<>(CHUNKS);
+        for (int i = 0; i < CHUNKS; i++) {
+            byte[] chunk = new byte[CHUNK_BYTES + ((taskId + i) & 63)];
+            chunk[chunk.length - 1] = (byte) i;
+            chunks.add(chunk);
+        }
+        long sum = 0;
+        for (byte[] chunk : chunks) {
+            sum += chunk.length + chunk[chunk.length - 1];
+        }
+        return sum;
+    }
+
+}
@@ -0,0 +1,30 @@
+package top.sharehome.workload;
+
+import java.time.Duration;
+
+/**
+ * 阻塞I/O负载：睡眠模拟一次同步网络调用，期间占住执行线程（虚拟线程会卸载，不占平台线程）
+ * 睡眠时间由系统属性workload.blocking.micros指定，默认1000微秒
+ *
+ * @author AntonyCheng
+ */
+public class BlockingSleepWorkload implements Workload {
+
+    private static final Duration LATENCY = Duration.ofNanos(Long.getLong("workload.blocking.micros", 1000) * 1000);
+
+    @Override
+    public String name() {
+        return "blocking";
+    }
+
+    @Override
+    public long run(int taskId) {
+        try {
+            Thread.sleep(LATENCY);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return taskId;
+    }
+
+}
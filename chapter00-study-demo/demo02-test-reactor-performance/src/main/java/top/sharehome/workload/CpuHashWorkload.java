@@ -0,0 +1,35 @@
+package top.sharehome.workload;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 纯计算负载：对一段共享数据做FNV-1a哈希，不分配内存、不阻塞
+ * 每个任务哈希的字节数由系统属性workload.cpu.bytes指定，默认16KB（约十几微秒）
+ *
+ * @author AntonyCheng
+ */
+public class CpuHashWorkload implements Workload {
+
+    private static final int BYTES = Integer.getInteger("workload.cpu.bytes", 16 * 1024);
+
+    private static final byte[] DATA = new byte[4096];
+
+    static {
+        ThreadLocalRandom.current().nextBytes(DATA);
+    }
+
+    @Override
+    public String name() {
+        return "cpu";
+    }
+
+    @Override
+    public long run(int taskId) {
+        long hash = 0xcbf29ce484222325L ^ taskId;
+        for (int i = 0; i < BYTES; i++) {
+            hash = (hash ^ DATA[i & (DATA.length - 1)]) * 0x100000001b3L;
+        }
+        return hash;
+    }
+
+}
@@ -0,0 +1,47 @@
+package top.sharehome.workload;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * 混合负载：按任务编号把任务分给其他负载，比例接近同步服务的实际组成：
+ * 计算60%、分配20%、阻塞I/O 10%、非阻塞I/O 10%，同一批任务中各类交错出现
+ *
+ * @author AntonyCheng
+ */
+public class MixedWorkload implements Workload {
+
+    private static final Workload CPU = new CpuHashWorkload();
+
+    private static final Workload ALLOCATION = new AllocationWorkload();
+
+    private static final Workload BLOCKING = new BlockingSleepWorkload();
+
+    private static final Workload TIMER = new TimerWorkload();
+
+    @Override
+    public String name() {
+        return "mixed";
+    }
+
+    @Override
+    public long run(int taskId) {
+        return pick(taskId).run(taskId);
+    }
+
+    @Override
+    public Mono<Long> execute(int taskId) {
+        return pick(taskId).execute(taskId);
+    }
+
+    private static Workload pick(int taskId) {
+        int slot = taskId % 10;
+        if (slot < 6) {
+            return CPU;
+        }
+        if (slot < 8) {
+            return ALLOCATION;
+        }
+        return slot == 8 ? BLOCKING : TIMER;
+    }
+
+}
@@ -0,0 +1,37 @@
+package top.sharehome.workload;
+
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+
+/**
+ * 非阻塞I/O负载：由定时器在延迟后完成，模拟异步客户端的一次网络调用，等待期间不占用任何线程；
+ * 线程类执行方式只能阻塞等待结果，这正是它们用不上非阻塞I/O的代价
+ * 定时器使用单独的调度器，不占用被测的Schedulers.parallel()；延迟由系统属性workload.timer.micros指定，默认1000微秒
+ *
+ * @author AntonyCheng
+ */
+public class TimerWorkload implements Workload {
+
+    private static final Duration LATENCY = Duration.ofNanos(Long.getLong("workload.timer.micros", 1000) * 1000);
+
+    private static final Scheduler TIMER = Schedulers.newSingle("workload-timer", true);
+
+    @Override
+    public String name() {
+        return "timer";
+    }
+
+    @Override
+    public long run(int taskId) {
+        return execute(taskId).block();
+    }
+
+    @Override
+    public Mono<Long> execute(int taskId) {
+        return Mono.delay(LATENCY, TIMER).map(tick -> (long) taskId);
+    }
+
+}
@@ -0,0 +1,35 @@
+package top.sharehome.workload;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * 任务负载SPI，实现类在META-INF/services/top.sharehome.workload.Workload中注册，由Workloads通过ServiceLoader加载
+ * 线程类执行方式（虚拟线程、平台线程、线程池）调用run，响应式执行方式（调度器、ParallelFlux）订阅execute
+ *
+ * @author AntonyCheng
+ */
+public interface Workload {
+
+    /**
+     * 负载名称，用于基准测试参数和命令行选择
+     */
+    String name();
+
+    /**
+     * 在当前线程上执行一个任务，允许阻塞
+     *
+     * @param taskId 任务编号
+     * @return 任务结果，调用方累加后交给Blackhole，防止任务被优化掉
+     */
+    long run(int taskId);
+
+    /**
+     * 以Mono形式执行一个任务，默认在订阅线程上调用run，非阻塞负载覆盖此方法，不占用线程等待
+     *
+     * @param taskId 任务编号
+     */
+    default Mono<Long> execute(int taskId) {
+        return Mono.fromCallable(() -> run(taskId));
+    }
+
+}
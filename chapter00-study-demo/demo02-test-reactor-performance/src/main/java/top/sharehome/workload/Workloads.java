@@ -0,0 +1,46 @@
+package top.sharehome.workload;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+
+/**
+ * 通过ServiceLoader加载的全部任务负载，按名称查找
+ *
+ * @author AntonyCheng
+ */
+public final class Workloads {
+
+    private static final Map<String, Workload> WORKLOADS = new LinkedHashMap<>();
+
+    static {
+        for (Workload workload : ServiceLoader.load(Workload.class)) {
+            WORKLOADS.put(workload.name(), workload);
+        }
+    }
+
+    private Workloads() {
+    }
+
+    /**
+     * 按名称查找负载
+     *
+     * @throws IllegalArgumentException 没有该名称的负载
+     */
+    public static Workload get(String name) {
+        Workload workload = WORKLOADS.get(name);
+        if (workload == null) {
+            throw new IllegalArgumentException("未知负载：" + name + "，可选：" + WORKLOADS.keySet());
+        }
+        return workload;
+    }
+
+    /**
+     * 全部负载，按注册顺序
+     */
+    public static List<Workload> all() {
+        return List.copyOf(WORKLOADS.values());
+    }
+
+}